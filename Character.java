@@ -1,12 +1,13 @@
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Random;
+import java.util.EnumMap;
 
 /**
  * Class Character - represents a character in an adventure game.
  * <p>
  * A "Character" represents a player or non-player character within the game, 
  * with attributes such as health, passiveness, inventory, and location within the map.
+ * <p>
+ * The state of a character which changes as the game is played (its room, health, whether it has been
+ * interacted with and how it moves) is kept in its world's {@link CharacterTable}, at the character's index.
  *
  * @author Mahdi Razzaque
  * @version 28.11.2024
@@ -14,32 +15,31 @@ import java.util.Random;
 public class Character {
     private String name;
     private Boolean passive;
-    private Integer currentHealth;
     private Integer maxHealth;
-    private Room currentRoom;
     private nonPlayerInventory characterInventory;
-    private boolean interactedWith;
-    private boolean randomCharacterMovement;
-    private Integer randomMovementChance;
+    private World world; // The world the character belongs to, which makes its random choices
+    private CharacterTable table; // The table holding the character's room, health and flags
+    private int index; // The character's index in the table
 
     /**
      * Constructs a Character object with the specified name, passivity, maximum health, and current room.
      *
+     * @param world The world the character belongs to.
      * @param name The name of the character.
      * @param passive Indicates whether the character is passive.
      * @param maxHealth The maximum health value of the character.
      * @param currentRoom The room where the character is currently located.
      */
-    public Character(String name, Boolean passive, Integer maxHealth, Room currentRoom) {
+    public Character(World world, String name, Boolean passive, Integer maxHealth, Room currentRoom) {
         this.name = name;
         this.passive = passive;
-        currentHealth = this.maxHealth = maxHealth;
-        this.currentRoom = currentRoom;
-        characterInventory = new nonPlayerInventory(name, currentRoom); // Creates an inventory for the character
-        interactedWith = false;
+        this.maxHealth = maxHealth;
+        characterInventory = new nonPlayerInventory(world, name, currentRoom); // Creates an inventory for the character
+        this.world = world;
+        table = world.getCharacterTable();
+        index = table.add(this, currentRoom == null ? CharacterTable.NO_ROOM : currentRoom.getId(), maxHealth);
 
-        //Game.characterMap.put(Utils.toSnakeCase(name), this); //Add the character to the character map
-        Game.characterMap.put(Utils.toSnakeCase(name), this); //Add the character to the character map
+        world.addCharacter(this); //Add the character to the character map
     }
 
     /**
@@ -66,7 +66,7 @@ public class Character {
      * @return The current health of the character.
      */
     public Integer getHealth() {
-        return currentHealth;
+        return table.getHealth(index);
     }
 
     /**
@@ -75,7 +75,7 @@ public class Character {
      * @return true if the character has been interacted with; false otherwise.
      */
     public boolean getInteractedWith() {
-        return interactedWith;
+        return table.hasFlag(index, CharacterTable.INTERACTED);
     }
 
     /**
@@ -84,7 +84,41 @@ public class Character {
      * @return The room where the character is currently located.
      */
     public Room getCurrentRoom() {
-        return currentRoom;
+        int room = table.getRoom(index);
+        return room == CharacterTable.NO_ROOM ? null : world.getRoom(room);
+    }
+
+    /**
+     * Returns the index of the character in its world's {@link CharacterTable}.
+     *
+     * @return The index of the character.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Restores the state of the character from a save file.
+     * <p>
+     * This does not move the character between the rooms' lists of characters, which are restored separately.
+     *
+     * @param room The room the character is in, or null if the character has been killed.
+     * @param health The current health of the character.
+     * @param interactedWith Whether the character has been interacted with.
+     */
+    public void restoreState(Room room, int health, boolean interactedWith) {
+        setCurrentRoom(room);
+        table.setHealth(index, health);
+        table.setFlag(index, CharacterTable.INTERACTED, interactedWith);
+    }
+
+    /**
+     * Returns the quantities of the items in the character's inventory.
+     *
+     * @return The character's items.
+     */
+    public ItemCounts getCharacterItems() {
+        return characterInventory.getInventory();
     }
 
     /**
@@ -93,11 +127,7 @@ public class Character {
      * @param health The amount of health to add.
      */
     public void addHealth(Integer health) {
-        if ((currentHealth + health) >= maxHealth) {
-            currentHealth = maxHealth;
-            return;
-        }
-        currentHealth += health;
+        table.setHealth(index, Math.min(table.getHealth(index) + health, maxHealth));
     }
     
     /**
@@ -107,12 +137,12 @@ public class Character {
      * @param health The amount of health to remove.
      */
     public void removeHealth(Integer health) {
-        if ((currentHealth - health) == 0) {
-            currentHealth = 0;
+        if ((table.getHealth(index) - health) == 0) {
+            table.setHealth(index, 0);
             transferInventoryToRoom();
-            currentRoom.removeCharacter(this);
+            getCurrentRoom().removeCharacter(this);
         } else {
-            currentHealth -= health;
+            table.setHealth(index, table.getHealth(index) - health);
         }
     }
     /**
@@ -121,12 +151,12 @@ public class Character {
      * This method sets the current health of the character to zero and transfers the character's inventory to the room's inventory.
      */
     public void kill() {
-        if(currentHealth == 0) return;
+        if(table.getHealth(index) == 0) return;
 
-        currentHealth = 0;
+        table.setHealth(index, 0);
         transferInventoryToRoom();
-        currentRoom.removeCharacter(this);
-        currentRoom = null;
+        getCurrentRoom().removeCharacter(this);
+        setCurrentRoom(null);
     }
   
     /**
@@ -134,6 +164,7 @@ public class Character {
      * when the character's health reaches zero.
      */
     public void transferInventoryToRoom() {
+        Room currentRoom = getCurrentRoom();
         if (currentRoom != null) {
             currentRoom.getRoomInventory().addAll(characterInventory.getInventory());
             characterInventory.clear();
@@ -189,7 +220,7 @@ public class Character {
      *
      * @param itemsToAdd The items to be added to the character's inventory.
      */
-    public void addAllItemsToCharacterInventory(HashMap<Item, Integer> itemsToAdd) {
+    public void addAllItemsToCharacterInventory(ItemCounts itemsToAdd) {
         characterInventory.addAll(itemsToAdd);
     }
 
@@ -200,8 +231,9 @@ public class Character {
      * The dialog is managed by the `Dialog` class, which displays the character's dialog, once interacted with.
      */
     public void interact() {
-        Dialog.getDialog(name); // Trigger a dialog with the character
-        interactedWith = true; // Set the interaction status to true
+        Dialog.getDialog(name, world); // Trigger a dialog with the character
+        table.setFlag(index, CharacterTable.INTERACTED, true); // Set the interaction status to true
+        world.getCharacterScheduler().schedule(this); // The character may now wander, if random movement is enabled
     }
 
     /**
@@ -210,21 +242,32 @@ public class Character {
      *
      * @param direction The direction in which to move the character.
      */
-    public void goRoom(String direction) {
+    public void goRoom(Direction direction) {
+        Room currentRoom = getCurrentRoom();
         currentRoom.removeCharacter(this); // Removes the character from the room
         Room nextRoom = currentRoom.getExit(direction); // Retrieve the room in the specified direction
-        currentRoom = nextRoom; // Update the character's current room to the new room
-        currentRoom.addCharacter(this);
+        setCurrentRoom(nextRoom); // Update the character's current room to the new room
+        nextRoom.addCharacter(this);
+        GameEvents.characterMove(world, name, currentRoom, nextRoom);
     }
 
     /**
-     * This method returns a HashMap containing the exits of the room where the
+     * Records the room the character is in, without moving it between the rooms' lists of characters.
+     *
+     * @param room The room, or null if the character is not in a room.
+     */
+    private void setCurrentRoom(Room room) {
+        table.setRoom(index, room == null ? CharacterTable.NO_ROOM : room.getId());
+    }
+
+    /**
+     * This method returns an EnumMap containing the exits of the room where the
      * character is currently located.
      *
-     * @return A HashMap containing the exits of the current room.
+     * @return An EnumMap containing the exits of the current room.
      */
-    public HashMap<String, Room> getRoomExits() {
-        return currentRoom.getExits();
+    public EnumMap<Direction, Room> getRoomExits() {
+        return getCurrentRoom().getExits();
     }
 
     /**
@@ -235,29 +278,38 @@ public class Character {
      * @param randomMovementChance The chance of the character moving randomly.
      */
     public void setRandomMovementValues(Boolean randomCharacterMovement, Integer randomMovementChance) {
-        this.randomCharacterMovement = randomCharacterMovement; // Set the random movement flag
-        this.randomMovementChance = randomMovementChance; // Set the random movement chance
+        table.setFlag(index, CharacterTable.RANDOM_MOVEMENT, randomCharacterMovement); // Set the random movement flag
+        table.setMovementChance(index, randomMovementChance); // Set the random movement chance
     }
 
     /**
-     * Moves the character to a random room based on the specified random movement chance.
+     * Returns the chance of the character moving randomly after each command.
+     *
+     * @return The chance, one in this many.
+     */
+    public Integer getRandomMovementChance() {
+        return table.getMovementChance(index);
+    }
+
+    /**
+     * Checks whether the character can move randomly: random character movement must be enabled,
+     * and the character must have been interacted with and still be alive in a room.
+     *
+     * @return true if the character can move randomly; false otherwise.
+     */
+    public boolean canMoveRandomly() {
+        return table.canMove(index);
+    }
+
+    /**
+     * Moves the character through a random exit of its current room.
      * <p>
-     * This method selects a random exit from the current room's exits and moves the character
-     * to the corresponding room if the random movement conditions are met.
-     * The conditions include if random character movement is enabled, the random chance
-     * being met, and the character having been interacted with.
+     * When this happens is decided by the world's {@link CharacterScheduler}, based on the random movement chance.
      */
     public void randomRoomMovement() {
-        if (!randomCharacterMovement) return; // Check if random movement is enabled
-        if (!interactedWith) return; // Check if the character has been interacted with
-        if(currentRoom == null) return; // Check if the character is in a room
-        ArrayList<String> exits = new ArrayList<>(getRoomExits().keySet()); // Get the list of room exits
-        Random random = new Random();
-        int randomIndex = random.nextInt(exits.size()); // Select a random index for the exits
-        int randomChance = random.nextInt(randomMovementChance); // Generate a random chance
-        if (randomChance == randomMovementChance / 2) { // Check if movement conditions are met
-            goRoom(exits.get(randomIndex)); // Move the character to the random exit room
-            //System.out.println(name + " has moved to " + currentRoom.getName()); // Print movement confirmation
-        }
+        Room currentRoom = getCurrentRoom();
+        if (currentRoom == null || currentRoom.getExits().isEmpty()) return; // Check if the character is in a room with a way out
+        int randomIndex = world.nextRandom(currentRoom.getExits().size()); // Select a random index for the exits
+        goRoom(currentRoom.getExitDirection(randomIndex)); // Move the character to the random exit room
     }
 }
@@ -0,0 +1,103 @@
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * The CharacterScheduler class decides when characters wander from room to room.
+ * <p>
+ * Once random character movement is enabled, a character who has been interacted with has a chance of moving
+ * to a neighbouring room after each command, 1 in 30, 15 or 5 depending on the difficulty. Rather than rolling
+ * that chance for every character on every command, the scheduler draws the number of commands until each
+ * character's next move from the geometric distribution with the same chance, and keeps the characters in a
+ * queue ordered by when they are next due to move. Each command then only looks at the front of the queue, so
+ * characters who cannot move cost nothing and a command costs only as much as the moves it actually makes.
+ * <p>
+ * As the geometric distribution is memoryless, a character's next move can be drawn again at any time, such as
+ * when the settings change or a game is loaded, without changing how often they move.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class CharacterScheduler {
+    private World world; // The world whose characters are scheduled, which makes the random choices
+    private PriorityQueue<Move> moves = new PriorityQueue<>(); // The next move of each scheduled character, soonest first
+    private HashMap<Character, Move> scheduled = new HashMap<>(); // The next move of each scheduled character
+    private long commands; // The number of commands so far, which is the time moves are scheduled in
+    private long movesScheduled; // The number of moves ever scheduled, which keeps moves due together in order
+
+    /**
+     * Constructs a scheduler for the characters of the given world.
+     *
+     * @param world The world.
+     */
+    public CharacterScheduler(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Schedules the next move of a character, if the character can move and is not already scheduled.
+     *
+     * @param character The character.
+     */
+    public void schedule(Character character) {
+        if (!character.canMoveRandomly() || scheduled.containsKey(character)) return;
+
+        Move move = new Move(character, commands + world.nextGeometric(character.getRandomMovementChance()), movesScheduled++);
+        moves.add(move);
+        scheduled.put(character, move);
+    }
+
+    /**
+     * Draws the next move of every character again, after the settings or the characters have changed.
+     */
+    public void rescheduleAll() {
+        moves.clear();
+        scheduled.clear();
+        for (Character character : world.getCharacterMap().values()) {
+            schedule(character);
+        }
+    }
+
+    /**
+     * Counts a command and moves each character whose move has come due, scheduling their next one.
+     * A character who can no longer move, for example because they have been killed, is dropped instead.
+     */
+    public void tick() {
+        commands++;
+        Move move;
+        while ((move = moves.peek()) != null && move.dueCommand <= commands) {
+            moves.poll();
+            scheduled.remove(move.character);
+            if (move.character.canMoveRandomly()) {
+                move.character.randomRoomMovement();
+                schedule(move.character);
+            }
+        }
+    }
+
+    /**
+     * @return The number of characters with a move scheduled.
+     */
+    public int getScheduledCount() {
+        return scheduled.size();
+    }
+
+    /**
+     * A character's next move.
+     */
+    private static class Move implements Comparable<Move> {
+        private final Character character; // The character who will move
+        private final long dueCommand; // The command after which the character moves
+        private final long order; // The order the move was scheduled in
+
+        Move(Character character, long dueCommand, long order) {
+            this.character = character;
+            this.dueCommand = dueCommand;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Move other) {
+            return dueCommand != other.dueCommand ? Long.compare(dueCommand, other.dueCommand) : Long.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The CharacterSimulation class moves characters on a fixed world tick, independent of the player's commands,
+ * for manors with thousands of characters.
+ * <p>
+ * Each tick has two phases. In the first, the characters in the world's {@link CharacterTable} are split into
+ * ranges which are moved in parallel on a fork/join pool. Each character who can move decides whether to move on
+ * this tick and where to, writing only its own entries in the table: it moves when the tick it drew from the
+ * geometric distribution comes due, just as the {@link CharacterScheduler} does for commands, and picks an exit
+ * from the exits of its room, which are copied into arrays of room ids when the simulation starts. In the
+ * second phase, the characters who moved are taken out of their old rooms and put into their new ones, one at
+ * a time, so the rooms' lists of characters are never touched by more than one thread.
+ * <p>
+ * The random choices are made by hashing the world's seed with the character's index and the tick, rather than
+ * drawn from a shared generator, so a tick makes the same choices however the work is split between threads.
+ * <p>
+ * While the simulation is running it takes the world's lock for each tick, and the game takes the same lock
+ * for each command, so the player never sees a tick half done.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class CharacterSimulation {
+    public static final int CHARACTERS_PER_TASK = 4096; // The most characters moved by one fork/join task
+
+    private World world; // The world whose characters are simulated
+    private CharacterTable table; // The state of the characters
+    private ForkJoinPool pool = ForkJoinPool.commonPool(); // The pool the ticks are run on
+    private int[][] exits = new int[0][]; // The ids of the rooms each room's exits lead to, by room id
+    private int[] destinations = new int[0]; // The room each character moved to in the current tick, by index
+    private long tick; // The number of ticks run
+    private GameClock.Timeout timeout; // The repeating tick, while the simulation is running
+
+    /**
+     * Constructs a simulation of the characters of the given world.
+     *
+     * @param world The world.
+     */
+    public CharacterSimulation(World world) {
+        this.world = world;
+        table = world.getCharacterTable();
+    }
+
+    /**
+     * Starts ticking the simulation on a clock.
+     *
+     * @param clock The clock the ticks are timed by.
+     * @param tickMillis The time between ticks in milliseconds.
+     */
+    public synchronized void start(GameClock clock, long tickMillis) {
+        stop();
+        timeout = clock.scheduleRepeating(() -> {
+            world.getLock().lock();
+            try {
+                tick();
+            } finally {
+                world.getLock().unlock();
+            }
+        }, tickMillis);
+    }
+
+    /**
+     * Stops ticking the simulation.
+     */
+    public synchronized void stop() {
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
+    }
+
+    /**
+     * @return true if the simulation is ticking on a clock.
+     */
+    public synchronized boolean isRunning() {
+        return timeout != null;
+    }
+
+    /**
+     * @return The number of ticks run.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Runs one tick: decides in parallel which characters move and where to, then moves them between rooms.
+     *
+     * @return The number of characters who moved.
+     */
+    public int tick() {
+        tick++;
+        if (exits.length != world.getRoomCount()) {
+            copyExits();
+        }
+        if (destinations.length < table.size()) {
+            destinations = new int[table.size()];
+        }
+
+        Moves moves = pool.invoke(new TickTask(0, table.size()));
+
+        // Merge phase: move the characters between rooms on this thread alone
+        for (int i = 0; i < moves.count; i++) {
+            int index = moves.indices[i];
+            Character character = table.getCharacter(index);
+            Room from = world.getRoom(table.getRoom(index));
+            Room to = world.getRoom(destinations[index]);
+            from.removeCharacter(character);
+            to.addCharacter(character);
+            table.setRoom(index, destinations[index]);
+            GameEvents.characterMove(world, character.getName(), from, to);
+        }
+        return moves.count;
+    }
+
+    /**
+     * Copies the exits of every room into arrays of room ids, in the same order as {@link Room#getExitDirection(int)}.
+     */
+    private void copyExits() {
+        exits = new int[world.getRoomCount()][];
+        for (int id = 0; id < exits.length; id++) {
+            Room room = world.getRoom(id);
+            exits[id] = new int[room.getExits().size()];
+            for (int exit = 0; exit < exits[id].length; exit++) {
+                exits[id][exit] = room.getExit(room.getExitDirection(exit)).getId();
+            }
+        }
+    }
+
+    /**
+     * Decides whether one character moves on this tick, and if so records where to.
+     *
+     * @param index The index of the character.
+     * @return true if the character moves.
+     */
+    private boolean decide(int index) {
+        if (!table.canMove(index)) {
+            table.setNextMove(index, 0);
+            return false;
+        }
+
+        int chance = table.getMovementChance(index);
+        long nextMove = table.getNextMove(index);
+        if (nextMove == 0) {
+            // The character has just become able to move, and may move on this very tick
+            nextMove = tick - 1 + geometric(random(index, 0), chance);
+        }
+        if (nextMove > tick) {
+            table.setNextMove(index, nextMove);
+            return false;
+        }
+
+        table.setNextMove(index, tick + geometric(random(index, 1), chance));
+        int[] roomExits = exits[table.getRoom(index)];
+        if (roomExits.length == 0) return false;
+
+        destinations[index] = roomExits[(int) ((random(index, 2) >>> 1) % roomExits.length)];
+        return true;
+    }
+
+    /**
+     * Returns a random number for a character on this tick, made by mixing the world's seed, the character's index,
+     * the tick and which choice it is for. The mixing function is the one used by SplittableRandom.
+     */
+    private long random(int index, int choice) {
+        long z = world.getSeed() + (index * 0x9E3779B97F4A7C15L) + (tick * 0xC2B2AE3D27D4EB4FL) + (choice * 0x165667B19E3779F9L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Turns a random number into the number of tries until the first success, when each try succeeds with a
+     * chance of 1 in the given number.
+     */
+    private static long geometric(long random, int chance) {
+        if (chance <= 1) return 1;
+        double uniform = 1.0 - (random >>> 11) * 0x1.0p-53; // Never 0, so its logarithm is finite
+        return 1 + (long) Math.floor(Math.log(uniform) / Math.log1p(-1.0 / chance));
+    }
+
+    /**
+     * The indices of the characters who moved, in index order.
+     */
+    private static class Moves {
+        private int[] indices; // The indices of the characters who moved
+        private int count; // The number of characters who moved
+
+        Moves(int capacity) {
+            indices = new int[capacity];
+        }
+
+        void add(int index) {
+            if (count == indices.length) {
+                indices = Arrays.copyOf(indices, Math.max(8, count * 2));
+            }
+            indices[count++] = index;
+        }
+
+        Moves append(Moves other) {
+            if (count + other.count > indices.length) {
+                indices = Arrays.copyOf(indices, count + other.count);
+            }
+            System.arraycopy(other.indices, 0, indices, count, other.count);
+            count += other.count;
+            return this;
+        }
+    }
+
+    /**
+     * Decides the moves of a range of characters, splitting the range between tasks if it is large.
+     */
+    private class TickTask extends RecursiveTask<Moves> {
+        private static final long serialVersionUID = 1L; // Tasks are never serialised, but ForkJoinTask is Serializable
+
+        private final int from, to; // The range of character indices, from inclusive and to exclusive
+
+        TickTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Moves compute() {
+            if (to - from <= CHARACTERS_PER_TASK) {
+                Moves moves = new Moves(0);
+                for (int index = from; index < to; index++) {
+                    if (decide(index)) moves.add(index);
+                }
+                return moves;
+            }
+
+            int middle = (from + to) >>> 1;
+            TickTask left = new TickTask(from, middle);
+            left.fork();
+            Moves right = new TickTask(middle, to).compute();
+            return left.join().append(right);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+import java.util.Arrays;
+
+/**
+ * The CharacterTable class holds the changing state of every character in a world, in parallel arrays.
+ * <p>
+ * Each character is given a dense index when it is created, and its room, health, flags, movement chance and
+ * next move are kept at that index in primitive arrays rather than in fields of the {@link Character} object.
+ * The character object reads and writes its state through the table. Keeping the state together like this
+ * lets the {@link CharacterSimulation} move thousands of characters each tick by scanning a few arrays,
+ * split between cores, rather than chasing an object per character.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class CharacterTable {
+    public static final int NO_ROOM = -1; // The room id of a character who is not in any room, such as one who has been killed
+
+    public static final byte INTERACTED = 1; // Flag for if the character has been interacted with
+    public static final byte RANDOM_MOVEMENT = 2; // Flag for if random character movement is enabled for the character
+
+    private Character[] characters = new Character[16]; // The character at each index
+    private int[] rooms = new int[16]; // The id of each character's room, or NO_ROOM
+    private int[] health = new int[16]; // The current health of each character
+    private byte[] flags = new byte[16]; // The flags of each character
+    private int[] movementChances = new int[16]; // Each character's chance, one in this many, of moving each turn
+    private long[] nextMoves = new long[16]; // The tick each character next moves on in a simulation, or 0 if not yet drawn
+    private int size; // The number of characters
+
+    /**
+     * Adds a character to the table.
+     *
+     * @param character The character.
+     * @param room The id of the character's room, or NO_ROOM.
+     * @param health The character's health.
+     * @return The index of the character.
+     */
+    public int add(Character character, int room, int health) {
+        if (size == characters.length) {
+            int capacity = size * 2;
+            characters = Arrays.copyOf(characters, capacity);
+            rooms = Arrays.copyOf(rooms, capacity);
+            this.health = Arrays.copyOf(this.health, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            movementChances = Arrays.copyOf(movementChances, capacity);
+            nextMoves = Arrays.copyOf(nextMoves, capacity);
+        }
+
+        characters[size] = character;
+        rooms[size] = room;
+        this.health[size] = health;
+        movementChances[size] = 100;
+        return size++;
+    }
+
+    /**
+     * @return The number of characters.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index The index of the character.
+     * @return The character.
+     */
+    public Character getCharacter(int index) {
+        return characters[index];
+    }
+
+    /**
+     * @param index The index of the character.
+     * @return The id of the character's room, or NO_ROOM.
+     */
+    public int getRoom(int index) {
+        return rooms[index];
+    }
+
+    /**
+     * @param index The index of the character.
+     * @param room The id of the character's room, or NO_ROOM.
+     */
+    public void setRoom(int index, int room) {
+        rooms[index] = room;
+    }
+
+    /**
+     * @param index The index of the character.
+     * @return The character's current health.
+     */
+    public int getHealth(int index) {
+        return health[index];
+    }
+
+    /**
+     * @param index The index of the character.
+     * @param value The character's current health.
+     */
+    public void setHealth(int index, int value) {
+        health[index] = value;
+    }
+
+    /**
+     * @param index The index of the character.
+     * @param flag The flag, such as INTERACTED.
+     * @return true if the flag is set.
+     */
+    public boolean hasFlag(int index, byte flag) {
+        return (flags[index] & flag) != 0;
+    }
+
+    /**
+     * @param index The index of the character.
+     * @param flag The flag, such as INTERACTED.
+     * @param set Whether the flag is set.
+     */
+    public void setFlag(int index, byte flag, boolean set) {
+        flags[index] = (byte) (set ? flags[index] | flag : flags[index] & ~flag);
+        nextMoves[index] = 0; // Whether and when the character moves may have changed
+    }
+
+    /**
+     * @param index The index of the character.
+     * @return The character's chance, one in this many, of moving each turn.
+     */
+    public int getMovementChance(int index) {
+        return movementChances[index];
+    }
+
+    /**
+     * @param index The index of the character.
+     * @param chance The character's chance, one in this many, of moving each turn.
+     */
+    public void setMovementChance(int index, int chance) {
+        movementChances[index] = chance;
+        nextMoves[index] = 0;
+    }
+
+    /**
+     * Checks whether a character can move randomly: random movement must be enabled for them,
+     * and they must have been interacted with and still be alive in a room.
+     *
+     * @param index The index of the character.
+     * @return true if the character can move randomly.
+     */
+    public boolean canMove(int index) {
+        return (flags[index] & (INTERACTED | RANDOM_MOVEMENT)) == (INTERACTED | RANDOM_MOVEMENT)
+                && rooms[index] != NO_ROOM && health[index] > 0;
+    }
+
+    /**
+     * @param index The index of the character.
+     * @return The tick the character next moves on in a simulation, or 0 if it has not been drawn.
+     */
+    long getNextMove(int index) {
+        return nextMoves[index];
+    }
+
+    /**
+     * @param index The index of the character.
+     * @param tick The tick the character next moves on in a simulation, or 0 to draw it again.
+     */
+    void setNextMove(int index, long tick) {
+        nextMoves[index] = tick;
+    }
+}
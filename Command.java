@@ -3,30 +3,42 @@
  * "Escape from the Mystic Manor is a very simple, text based adventure game.
  * <p>
  * This class holds information about a command that was issued by the user.
- * A command currently consists of two strings: a command word and a second
- * word (for example, if the command was "take map", then the two strings
- * obviously are "take" and "map").
+ * A command consists of a command word followed by up to {@link #MAX_WORDS} - 1
+ * further words (for example, if the command was "inventory drop key 2", then the
+ * words are "inventory", "drop", "key" and "2").
  * <p>
  * The way this is used is: Commands are already checked for being valid
  * command words. If the user entered an invalid command (a word that is not
  * known) then the command word is <null>.
  * <p>
  * If the command had only one word, then the second word, third and fourth word is <null>.
- * 
+ * The words past the fourth can be read with {@link #getWord(int)}.
+ * <p>
+ * The command word and, where there is one, the subcommand word are resolved to
+ * opcodes (see {@link CommandWords}), so the game can dispatch on them.
+ * <p>
+ * The parser reuses one Command for every line it reads, so a command should not be
+ * kept after the next one has been read.
+ *
  * @author  Michael Kölling, David J. Barnes, Mahdi Razzaque
  * @version 28.11.2024
  */
 
 public class Command
 {
-    private String commandWord;
-    private String secondWord;
-    private String thirdWord;
-    private String fourthWord;
+    public static final int MAX_WORDS = 16; // The most words a command can hold; any more are ignored
+
+    private String[] words = new String[MAX_WORDS]; // The words of the command, the first being the command word
+    private int wordCount; // The number of words in the command
+    private int verb = CommandWords.UNKNOWN; // The opcode of the command word
+    private int subcommand = CommandWords.UNKNOWN; // The opcode of the second word as a subcommand of the command word
+
+    private static final CommandWords BUILT_IN_WORDS = new CommandWords(); // The words commands built outside the parser are resolved against
 
     /**
      * Create a command object. First, second, and third words must be supplied, but
-     * any of them can be null.
+     * any of them can be null. The words are resolved to opcodes against the built-in
+     * command words, so a command word added to a parser later is not recognised.
      *
      * @param firstWord The first word of the command. Null if the command was not recognised.
      * @param secondWord The second word of the command, typically used for subcommands.
@@ -34,10 +46,67 @@ public class Command
      * @param fourthWord The fourth word of the command, typically used for quantities.
      */
     public Command(String firstWord, String secondWord, String thirdWord, String fourthWord) {
-        commandWord = firstWord;
-        this.secondWord = secondWord;
-        this.thirdWord = thirdWord;
-        this.fourthWord = fourthWord;
+        words[0] = firstWord;
+        words[1] = secondWord;
+        words[2] = thirdWord;
+        words[3] = fourthWord;
+        wordCount = 4;
+        while (wordCount > 0 && words[wordCount - 1] == null) {
+            wordCount--;
+        }
+        verb = BUILT_IN_WORDS.getOpcode(firstWord);
+        if (verb == CommandWords.UNKNOWN) {
+            words[0] = null;
+        } else {
+            subcommand = BUILT_IN_WORDS.getSubcommandOpcode(verb, secondWord);
+        }
+    }
+
+    /**
+     * Create an empty command, which the parser fills in for each line it reads.
+     */
+    Command() {
+    }
+
+    /**
+     * Remove all the words from this command so it can be reused.
+     */
+    void clear() {
+        for (int i = 0; i < wordCount; i++) {
+            words[i] = null;
+        }
+        wordCount = 0;
+        verb = subcommand = CommandWords.UNKNOWN;
+    }
+
+    /**
+     * Add a word to the end of this command. Words past {@link #MAX_WORDS} are ignored.
+     *
+     * @param word The word to add.
+     */
+    void addWord(String word) {
+        if (wordCount < MAX_WORDS) {
+            words[wordCount++] = word;
+        }
+    }
+
+    /**
+     * Mark this command as not understood, by removing its command word.
+     */
+    void setUnknown() {
+        words[0] = null;
+        verb = subcommand = CommandWords.UNKNOWN;
+    }
+
+    /**
+     * Set the opcodes which the command word and subcommand word were resolved to.
+     *
+     * @param verb The opcode of the command word.
+     * @param subcommand The opcode of the subcommand, or UNKNOWN if the second word is not a subcommand.
+     */
+    void setOpcodes(int verb, int subcommand) {
+        this.verb = verb;
+        this.subcommand = subcommand;
     }
 
     /**
@@ -48,7 +117,30 @@ public class Command
      */
     public String getCommandWord()
     {
-        return commandWord;
+        return words[0];
+    }
+
+    /**
+     * @return The opcode of the command word, as resolved by the parser. Returns
+     * CommandWords.UNKNOWN if the command was not understood.
+     */
+    public int getVerb() {
+        return verb;
+    }
+
+    /**
+     * @return The direction the second word stands for, or null if it is not a direction.
+     */
+    public Direction getDirection() {
+        return Direction.parse(getSecondWord());
+    }
+
+    /**
+     * @return The opcode of the second word as a subcommand, as resolved by the parser.
+     * Returns CommandWords.UNKNOWN if the second word is not a subcommand.
+     */
+    public int getSubcommand() {
+        return subcommand;
     }
 
     /**
@@ -57,23 +149,38 @@ public class Command
      */
     public String getSecondWord()
     {
-        return secondWord;
+        return words[1];
     }
-    
+
     /**
      * @return The third word of this command. Returns null if there was no
      * third word.
      */
     public String getThirdWord() {
-        return thirdWord;
+        return words[2];
     }
-    
+
     /**
      * @return The fourth word of this command. Returns null if there was no
      * fourth word.
      */
     public String getFourthWord() {
-        return fourthWord;
+        return words[3];
+    }
+
+    /**
+     * @param index The position of the word, starting from 0 for the command word.
+     * @return The word at the given position. Returns null if there was no such word.
+     */
+    public String getWord(int index) {
+        return index < wordCount ? words[index] : null;
+    }
+
+    /**
+     * @return The number of words in this command, including the command word.
+     */
+    public int getWordCount() {
+        return wordCount;
     }
 
     /**
@@ -81,7 +188,7 @@ public class Command
      */
     public boolean isUnknown()
     {
-        return (commandWord == null);
+        return (words[0] == null);
     }
 
     /**
@@ -89,22 +196,21 @@ public class Command
      */
     public boolean hasSecondWord()
     {
-        return (secondWord != null);
+        return (words[1] != null);
     }
-    
+
     /**
      * @return true if the command has a second word.
      */
     public boolean hasThirdWord(){
-        return (thirdWord != null);
+        return (words[2] != null);
     }
-    
+
     /**
      * @return true if the command has a fourth word.
      */
     public boolean hasFourthWord() {
-        return (fourthWord != null);
+        return (words[3] != null);
     }
 
 }
-
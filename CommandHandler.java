@@ -0,0 +1,19 @@
+/**
+ * A CommandHandler carries out the commands for one command word.
+ * <p>
+ * The game keeps a table of handlers indexed by the opcode of each command word, and new command
+ * words can be added to a game with their own handler by calling {@link Game#addCommand}.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+@FunctionalInterface
+public interface CommandHandler {
+    /**
+     * Carries out a command.
+     *
+     * @param command The command to carry out.
+     * @return true if the command ends the game, false otherwise.
+     */
+    boolean handle(Command command);
+}
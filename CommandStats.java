@@ -0,0 +1,183 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The CommandStats class counts the commands carried out by every game in the JVM and how long they take.
+ * <p>
+ * Each command word has a {@link LatencyHistogram} of the time {@link Game#processCommand} took to carry it out,
+ * along with the time its output was paused for. Pauses do not hold up the command, as the output behind them is
+ * released later by the clock, so the latency is the time spent working and the paused time is kept apart from it.
+ * There are also counters of the commands, unknown commands, moves between rooms and inventory commands.
+ * <p>
+ * Recording uses only LongAdders and an atomic array, so the sessions of a server record at once without a lock,
+ * and a command costs two reads of the clock and a few increments. The statistics can be read through JMX once
+ * {@link #registerMBean()} has been called, and with the admin {@code stats} command.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class CommandStats implements CommandStatsMBean {
+    public static final String OBJECT_NAME = "manor:type=CommandStats"; // The name the statistics are registered under in JMX
+
+    private static final CommandStats SHARED = new CommandStats(); // The statistics of every game in the JVM
+    private static final double[] REPORTED_PERCENTILES = {50, 90, 99, 99.9}; // The percentiles shown by the report
+    private static final String[] PERCENTILE_LABELS = {"p50", "p90", "p99", "p99.9"}; // The headings of the percentiles
+
+    private final LongAdder commands = new LongAdder(); // The number of commands carried out
+    private final LongAdder unknownCommands = new LongAdder(); // The number of commands that were not recognised
+    private final LongAdder roomTransitions = new LongAdder(); // The number of moves between rooms
+    private final LongAdder inventoryOperations = new LongAdder(); // The number of inventory commands
+    private final LongAdder pausedMillis = new LongAdder(); // The total time output was paused for by commands
+    private final Map<String, Verb> verbs = new ConcurrentHashMap<>(); // The statistics of each command word
+
+    /**
+     * @return The statistics of every game in the JVM.
+     */
+    public static CommandStats shared() {
+        return SHARED;
+    }
+
+    /**
+     * Registers the shared statistics with the platform MBean server, if they are not registered already.
+     *
+     * @throws JMException If the statistics cannot be registered.
+     */
+    public static synchronized void registerMBean() throws JMException {
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(SHARED, name);
+        }
+    }
+
+    /**
+     * Returns the statistics of a command word, which a game looks up once and then records into for each command.
+     *
+     * @param word The command word.
+     * @return The statistics of the command word.
+     */
+    public Verb getVerb(String word) {
+        return verbs.computeIfAbsent(word, Verb::new);
+    }
+
+    /**
+     * Records a command that was carried out.
+     *
+     * @param verb The statistics of the command word.
+     * @param nanos The time the command took, in nanoseconds.
+     * @param paused The time the command paused its output for, in milliseconds.
+     */
+    public void recordCommand(Verb verb, long nanos, long paused) {
+        commands.increment();
+        verb.latency.record(nanos);
+        if (paused > 0) {
+            verb.pausedMillis.add(paused);
+            pausedMillis.add(paused);
+        }
+    }
+
+    /**
+     * Records a command whose command word was not recognised.
+     */
+    public void recordUnknownCommand() {
+        commands.increment();
+        unknownCommands.increment();
+    }
+
+    /**
+     * Records a move from one room to another.
+     */
+    public void recordRoomTransition() {
+        roomTransitions.increment();
+    }
+
+    /**
+     * Records an inventory command.
+     */
+    public void recordInventoryOperation() {
+        inventoryOperations.increment();
+    }
+
+    @Override
+    public long getCommandCount() {
+        return commands.sum();
+    }
+
+    @Override
+    public long getUnknownCommandCount() {
+        return unknownCommands.sum();
+    }
+
+    @Override
+    public long getRoomTransitionCount() {
+        return roomTransitions.sum();
+    }
+
+    @Override
+    public long getInventoryOperationCount() {
+        return inventoryOperations.sum();
+    }
+
+    @Override
+    public long getPausedMillis() {
+        return pausedMillis.sum();
+    }
+
+    @Override
+    public String[] getVerbs() {
+        return verbs.keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public double getLatencyPercentileMicros(String verb, double percentile) {
+        Verb stats = verbs.get(verb);
+        return stats == null ? 0 : stats.latency.getPercentileNanos(percentile) / 1000.0;
+    }
+
+    @Override
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Commands: %d (%d unknown)%n", getCommandCount(), getUnknownCommandCount()));
+        report.append(String.format("Room transitions: %d%n", getRoomTransitionCount()));
+        report.append(String.format("Inventory operations: %d%n", getInventoryOperationCount()));
+        report.append(String.format("Output paused: %d ms%n", getPausedMillis()));
+
+        report.append(String.format("%-10s %8s %9s", "verb", "count", "mean"));
+        for (String label : PERCENTILE_LABELS) {
+            report.append(String.format(" %9s", label));
+        }
+        report.append(String.format(" %10s%n", "paused ms"));
+
+        for (Verb verb : verbs.values()) {
+            report.append(String.format("%-10s %8d %9s", verb.word, verb.latency.getCount(), micros(verb.latency.getMeanNanos())));
+            for (double percentile : REPORTED_PERCENTILES) {
+                report.append(String.format(" %9s", micros(verb.latency.getPercentileNanos(percentile))));
+            }
+            report.append(String.format(" %10d%n", verb.pausedMillis.sum()));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Formats a time in nanoseconds as microseconds.
+     */
+    private static String micros(long nanos) {
+        return String.format("%.1fus", nanos / 1000.0);
+    }
+
+    /**
+     * The statistics of one command word.
+     */
+    public static class Verb {
+        private final String word; // The command word
+        private final LatencyHistogram latency = new LatencyHistogram(); // The time taken by each command
+        private final LongAdder pausedMillis = new LongAdder(); // The total time the commands paused their output for
+
+        private Verb(String word) {
+            this.word = word;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * The management interface of {@link CommandStats}, through which the statistics of every session in the
+ * JVM can be read with JMX, for example in JConsole under manor:type=CommandStats.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public interface CommandStatsMBean {
+    /**
+     * @return The number of commands carried out, including unknown commands.
+     */
+    long getCommandCount();
+
+    /**
+     * @return The number of commands whose command word was not recognised.
+     */
+    long getUnknownCommandCount();
+
+    /**
+     * @return The number of times the player has moved from one room to another.
+     */
+    long getRoomTransitionCount();
+
+    /**
+     * @return The number of inventory commands carried out.
+     */
+    long getInventoryOperationCount();
+
+    /**
+     * @return The total time output has been paused for by commands, in milliseconds. This is time spent
+     *         waiting on the clock rather than working, so it is not part of the commands' latencies.
+     */
+    long getPausedMillis();
+
+    /**
+     * @return The command words which have been recorded, in no particular order.
+     */
+    String[] getVerbs();
+
+    /**
+     * Returns a percentile of the time taken by the commands of one command word.
+     *
+     * @param verb The command word.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The time in microseconds, or 0 if the command word has not been recorded.
+     */
+    double getLatencyPercentileMicros(String verb, double percentile);
+
+    /**
+     * @return A table of the counters and of the latency percentiles of each command word.
+     */
+    String report();
+}
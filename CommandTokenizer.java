@@ -0,0 +1,183 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.NoSuchElementException;
+
+/**
+ * The CommandTokenizer class reads lines of input and splits them into the words of a command.
+ * <p>
+ * It replaces a Scanner per line: bytes are read into a fixed buffer, each line is copied into a fixed
+ * character array of at most {@link #MAX_LINE_LENGTH} characters (anything longer is ignored), and the words
+ * are lowercased in place. Each word is looked up in a table of words seen before, so a word which has already
+ * been typed, such as a command word, direction or item name, is returned as the same String every time
+ * rather than a new one. Reading and splitting a line therefore creates no garbage once the session is warm.
+ * <p>
+ * Input is read as ASCII, as every word the game understands is ASCII. Any other byte is read as '?'.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class CommandTokenizer {
+    public static final int MAX_LINE_LENGTH = 256; // The most characters of a line which are kept
+    private static final int TABLE_SIZE = 512; // The number of slots in the word table, a power of two
+    private static final int MAX_TABLE_WORDS = TABLE_SIZE / 2; // The most words kept in the table, to keep lookups short
+
+    private InputStream in; // The stream lines are read from
+    private byte[] buffer = new byte[4096]; // Bytes read from the stream but not yet used
+    private int position, limit; // The next byte to use in the buffer, and the end of the bytes read
+    private char[] line = new char[MAX_LINE_LENGTH]; // The characters of the current line
+    private int length; // The number of characters in the current line
+
+    private String[] table = new String[TABLE_SIZE]; // Words seen before, by the hash of their characters
+    private int tableWords; // The number of words in the table
+
+    /**
+     * Constructs a tokenizer which reads from the given stream.
+     *
+     * @param in The stream lines are read from.
+     */
+    public CommandTokenizer(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next line of input, without its line ending.
+     *
+     * @throws NoSuchElementException If there is no more input, in the same way as Scanner.nextLine.
+     */
+    public void readLine() {
+        length = 0;
+        boolean readAnything = false;
+
+        while (true) {
+            if (position == limit && !fillBuffer()) {
+                if (readAnything) return; // The last line had no line ending
+                throw new NoSuchElementException("No line found");
+            }
+
+            byte b = buffer[position++];
+            readAnything = true;
+            if (b == '\n') {
+                if (length > 0 && line[length - 1] == '\r') length--;
+                return;
+            }
+            if (length < MAX_LINE_LENGTH) {
+                line[length++] = b >= 0 ? (char) b : '?';
+            }
+        }
+    }
+
+    /**
+     * Reads more bytes from the stream into the buffer.
+     *
+     * @return true if any bytes were read; false at the end of the input.
+     */
+    private boolean fillBuffer() {
+        try {
+            int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0) return false;
+
+            position = 0;
+            limit = read;
+            return true;
+        } catch (IOException e) {
+            return false; // Treat a broken connection like the end of the input
+        }
+    }
+
+    /**
+     * @return true if the current line has no words.
+     */
+    public boolean isBlank() {
+        for (int i = 0; i < length; i++) {
+            if (!isWhitespace(line[i])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The current line as it was typed.
+     */
+    public String getLine() {
+        return new String(line, 0, length);
+    }
+
+    /**
+     * Splits the current line into words, lowercasing them, and adds them to the command.
+     *
+     * @param command The command to add the words to.
+     */
+    public void tokenize(Command command) {
+        int i = 0;
+        while (i < length) {
+            while (i < length && isWhitespace(line[i])) i++; // Skip to the start of the next word
+            if (i == length) return;
+
+            int start = i;
+            while (i < length && !isWhitespace(line[i])) {
+                char c = line[i];
+                if (c >= 'A' && c <= 'Z') line[i] = (char) (c + ('a' - 'A'));
+                i++;
+            }
+            command.addWord(word(start, i));
+        }
+    }
+
+    /**
+     * Returns the word in the given part of the line, from the table if it has been seen before.
+     *
+     * @param start The index of the first character of the word.
+     * @param end The index after the last character of the word.
+     * @return The word.
+     */
+    private String word(int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + line[i]; // The same hash as String.hashCode
+        }
+
+        int slot = spread(hash);
+        while (table[slot] != null) {
+            if (matches(table[slot], start, end)) return table[slot];
+            slot = (slot + 1) & (TABLE_SIZE - 1);
+        }
+
+        String word = new String(line, start, end - start);
+        addToTable(word, slot);
+        return word;
+    }
+
+    /**
+     * Checks if a word is the same as the given part of the line.
+     */
+    private boolean matches(String word, int start, int end) {
+        if (word.length() != end - start) return false;
+        for (int i = start; i < end; i++) {
+            if (word.charAt(i - start) != line[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds a word to the table in the given empty slot, unless the table is full.
+     */
+    private void addToTable(String word, int slot) {
+        if (tableWords < MAX_TABLE_WORDS && table[slot] == null) {
+            table[slot] = word;
+            tableWords++;
+        }
+    }
+
+    /**
+     * Spreads the bits of a hash and maps it to a slot in the table.
+     */
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) & (TABLE_SIZE - 1);
+    }
+
+    /**
+     * Checks if a character separates words, in the same way as Scanner's default delimiter for ASCII.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r') || (c >= '\u001C' && c <= '\u001F');
+    }
+}
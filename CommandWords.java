@@ -1,3 +1,5 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
@@ -7,55 +9,150 @@ import java.util.HashMap;
  * This class holds an enumeration of all command words known to the game.
  * It is used to recognise commands as they are typed in.
  * <p>
+ * Each command word is given an opcode, its position in the list of command words, and
+ * some command words have subcommands (such as "inventory display") which are given opcodes
+ * of their own. The parser resolves the words of each command to these opcodes once, so the
+ * game can dispatch on them without comparing strings. The built-in commands have the fixed
+ * opcodes below; commands added later by {@link #addCommand(String, String)} are numbered after them.
+ * <p>
  * @author  Michael Kölling, David J. Barnes, Mahdi Razzaque
  * @version 28.11.2024
  */
 
-public class CommandWords {
-    // a constant array that holds all valid command words
-    private static final String[] validCommands = {
-        "go", "back", "help", "inventory", "interact", "use", "answer", "room", "map", "configure", "quit"
-    };
-    private HashMap<String, String> commandDescriptions;
+public final class CommandWords {
+    public static final int UNKNOWN = -1; // The opcode of a word which is not recognised
+
+    // Opcodes of the built-in command words, in the order they are listed by help
+    public static final int GO = 0, BACK = 1, HELP = 2, INVENTORY = 3, INTERACT = 4, USE = 5,
+            ANSWER = 6, ROOM = 7, MAP = 8, CONFIGURE = 9, SAVE = 10, LOAD = 11, QUIT = 12;
+
+    // Opcodes of the built-in subcommands
+    public static final int INVENTORY_DISPLAY = 0, INVENTORY_DROP = 1, INVENTORY_PICKUP = 2;
+    public static final int ROOM_INFO = 0;
+
+    private HashMap<String, Integer> opcodes; // Maps each command word to its opcode
+    private ArrayList<String> commandDescriptions; // The description of each command, by opcode
+    private ArrayList<HashMap<String, Integer>> subcommands; // Maps each subcommand word to its opcode, by command opcode
+    private String helpText; // All the command descriptions, rendered once
 
     /**
      * Constructor - initialise the command words.
      */
     public CommandWords() {
-        commandDescriptions = new HashMap<>();
-        commandDescriptions.put("go", "go [north/east/south/west] - Choose a room to move into");
-        commandDescriptions.put("back", "back - Go back to the previous room");
-        commandDescriptions.put("help", "help - Show this help message");
-        commandDescriptions.put("inventory", "inventory [display/drop/pickup] - Inventory commands");
-        commandDescriptions.put("interact", "interact [character_name] - Interact with a character");
-        commandDescriptions.put("use", "use [item_name] - Use an item");
-        commandDescriptions.put("answer", "answer [your answer] - Answer a character's riddle");
-        commandDescriptions.put("room", "room [info] - Room commands");
-        commandDescriptions.put("map", "map - Display the map");
-        commandDescriptions.put("configure", "configure - Configure game settings");
-        commandDescriptions.put("quit", "quit - Quit the game");
-    }
-
-    /**
-     * Check whether a given String is a valid command word. 
+        opcodes = new HashMap<>();
+        commandDescriptions = new ArrayList<>();
+        subcommands = new ArrayList<>();
+
+        addCommand("go", "go [north/east/south/west] or go to [room name] - Choose a room to move into");
+        addCommand("back", "back - Go back to the previous room");
+        addCommand("help", "help - Show this help message");
+        addCommand("inventory", "inventory [display/drop/pickup] - Inventory commands");
+        addCommand("interact", "interact [character_name] - Interact with a character");
+        addCommand("use", "use [item_name] - Use an item");
+        addCommand("answer", "answer [your answer] - Answer a character's riddle");
+        addCommand("room", "room [info] - Room commands");
+        addCommand("map", "map - Display the map");
+        addCommand("configure", "configure - Configure game settings");
+        addCommand("save", "save [name] - Save the game");
+        addCommand("load", "load [name] - Load a saved game");
+        addCommand("quit", "quit - Quit the game");
+
+        addSubcommand(INVENTORY, "display");
+        addSubcommand(INVENTORY, "drop");
+        addSubcommand(INVENTORY, "pickup");
+        addSubcommand(ROOM, "info");
+    }
+
+    /**
+     * Adds a command word, giving it the next opcode. The help text is rendered again to include it.
+     *
+     * @param word The command word.
+     * @param description The description of the command shown by help.
+     * @return The opcode of the command word.
+     */
+    public int addCommand(String word, String description) {
+        if (opcodes.containsKey(word)) {
+            throw new IllegalArgumentException("Command word already exists: " + word);
+        }
+
+        int opcode = commandDescriptions.size();
+        opcodes.put(word, opcode);
+        commandDescriptions.add(description);
+        subcommands.add(new HashMap<>());
+
+        helpText = String.join(System.lineSeparator(), commandDescriptions);
+        return opcode;
+    }
+
+    /**
+     * Adds a subcommand word to a command word, giving it the next opcode for that command.
+     *
+     * @param command The opcode of the command word.
+     * @param word The subcommand word.
+     * @return The opcode of the subcommand.
+     */
+    public int addSubcommand(int command, String word) {
+        HashMap<String, Integer> commandSubcommands = subcommands.get(command);
+        int opcode = commandSubcommands.size();
+        commandSubcommands.put(word, opcode);
+        return opcode;
+    }
+
+    /**
+     * Check whether a given String is a valid command word.
      * @return true if it is, false if it isn't.
      */
     public boolean isCommand(String aString)
     {
-        for (String validCommand : validCommands) {
-            if (validCommand.equals(aString))
-                return true;
-        }
-        // if we get here, the string was not found in the commands
-        return false;
+        return getOpcode(aString) != UNKNOWN;
+    }
+
+    /**
+     * Returns the opcode of a command word.
+     *
+     * @param word The command word.
+     * @return The opcode, or UNKNOWN if the word is not a command word.
+     */
+    public int getOpcode(String word) {
+        if (word == null) return UNKNOWN;
+        Integer opcode = opcodes.get(word);
+        return opcode == null ? UNKNOWN : opcode;
     }
 
     /**
-     * Print all valid commands and their descriptions
+     * Returns the opcode of a subcommand of a command word.
+     *
+     * @param command The opcode of the command word.
+     * @param word The subcommand word.
+     * @return The opcode, or UNKNOWN if the word is not a subcommand of the command.
      */
-    public void showAll() {
-        for (String command : commandDescriptions.keySet()) {
-            System.out.println(commandDescriptions.get(command));
+    public int getSubcommandOpcode(int command, String word) {
+        if (word == null) return UNKNOWN;
+        Integer opcode = subcommands.get(command).get(word);
+        return opcode == null ? UNKNOWN : opcode;
+    }
+
+    /**
+     * Resolves the command word of a command, and any subcommand, to their opcodes. If the command word
+     * is not known, the command is marked as not understood by removing its command word.
+     *
+     * @param command The command.
+     */
+    public void resolve(Command command) {
+        int verb = getOpcode(command.getCommandWord());
+        if (verb == UNKNOWN) {
+            command.setUnknown();
+        } else {
+            command.setOpcodes(verb, getSubcommandOpcode(verb, command.getSecondWord()));
         }
     }
+
+    /**
+     * Print all valid commands and their descriptions, in the order they were added.
+     *
+     * @param out The stream the commands are written to.
+     */
+    public void showAll(PrintStream out) {
+        out.println(helpText);
+    }
 }
@@ -1,75 +1,117 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The Dialog class manages the dialog interactions for various characters in the game.
  * <p>
- * This class holds the dialogs for different characters.
- * It provides a method to retrieve and display the dialogues for a given character.
+ * The dialog is written in data files rather than in the code. A character's lines are read from
+ * dialog/[character_name].json, a JSON array of lines, if there is one, and otherwise from the character's
+ * entry in dialog.json, an object mapping each character's name to its lines.
+ * <p>
+ * A character's lines are only read the first time someone talks to them. When they are read from dialog.json,
+ * the other characters' lines are skipped over without being kept. Once read, the lines are numbered and kept
+ * in an immutable cache shared by every game in the JVM.
  *
  * @author Mahdi Razzaque
  * @version 28.11.2024
  */
 
 public class Dialog {
-    public static HashMap<String, ArrayList<String>> dialog = new HashMap<>(); // Stores the dialog for each character
+    public static final String DIALOG_FILE = "dialog.json"; // The file holding the dialog of every character
+    public static final String CHARACTER_DIALOG_DIRECTORY = "dialog"; // The directory holding large dialogs, one file per character
+    private static final int LINE_PAUSE_SECONDS = 2; // The pause after each line of dialogue
 
-    static {
-        // Initialising dialog for Butler
-        ArrayList<String> butlerDialog = new ArrayList<>();
-        butlerDialog.add("Welcome to the Mystic Manor. Please, make yourself at home.");
-        butlerDialog.add("The pantry key? It's well hidden, but perhaps you should seek the hidden chamber.");
-        butlerDialog.add("Be careful, the ghost of the former owner is not easily defeated.");
-        dialog.put("Butler", butlerDialog);
+    private static final ConcurrentHashMap<String, List<String>> cache = new ConcurrentHashMap<>(); // The numbered lines of each character read so far
 
-        // Initialising dialog for Maid
-        ArrayList<String> maidDialog = new ArrayList<>();
-        maidDialog.add("Good day! The kitchen is just down the hall. I hope you find what you are looking for.");
-        maidDialog.add("The pantry is locked, but I have heard whispers about a key hidden in the hidden chamber.");
-        maidDialog.add("If you're planning to face the ghost, you'll need something special. Have you spoken to the cat in the library?");
-        dialog.put("Maid", maidDialog);
+    /**
+     * Retrieves and prints the dialogue for a given character.
+     * <p>
+     * This method prints each line of the character's dialogue in turn, numbered, with a pause after each line.
+     *
+     * @param character The name of the character whose dialogue is to be retrieved.
+     * @param world The world of the session, whose stream the dialogue is written to, which paces the lines.
+     */
+    public static void getDialog(String character, World world) {
+        GameEvents.DialogPlayed event = new GameEvents.DialogPlayed();
+        event.begin();
 
-        // Initialising dialog for Ghost of the Former Owner
-        ArrayList<String> ghostDialog = new ArrayList<>();
-        ghostDialog.add("You dare enter my domain? You shall not pass without a fight!");
-        ghostDialog.add("To defeat me, you will need more than courage. Only a certain power can banish me.");
-        ghostDialog.add("The hidden chamber holds many secrets. You will need to defeat me to access it.");
-        dialog.put("Ghost of the Former Owner", ghostDialog);
+        PacedOutput out = world.getOut();
+        List<String> lines = getLines(character);
+        for (String line : lines) {
+            // Display the current dialogue line with numbering
+            out.println(line);
 
-        // Initialising dialog for Cat
-        ArrayList<String> catDialog = new ArrayList<>();
-        catDialog.add("Meow. Welcome to the library. I have a riddle for you to solve.");
-        catDialog.add("Solve my riddle and fetch me 5 coins, and I will give you the key weapon to defeat the ghost.");
-        catDialog.add("I can remove dust and crumbs with ease, though I don’t use hands or water. What am I?");
-        catDialog.add("To solve the riddle, use the command 'answer [your answer]'. " +
-                "Ensure you possess no less than five coins to proceed.");
-        dialog.put("Cat", catDialog);
+            // Wait for 2 seconds before displaying the next line
+            out.pause(LINE_PAUSE_SECONDS);
+        }
 
-        // Initialising dialog for Security Guard
-        ArrayList<String> securityGuardDialog = new ArrayList<>();
-        securityGuardDialog.add("Hello there. I'm here to ensure the manor's safety.");
-        securityGuardDialog.add("The ghost in the master bedroom is a formidable opponent. Make sure you're prepared.");
-        securityGuardDialog.add("The cat in the library may have some valuable information for you.");
-        dialog.put("Security Guard", securityGuardDialog);
+        event.end();
+        GameEvents.commitDialog(event, world, character, lines.size(), lines.size() * LINE_PAUSE_SECONDS);
     }
 
     /**
-     * Retrieves and prints the next dialogue for a given character.
-     * <p>
-     * This method retrieves the current dialogue for the specified character and increments the dialogue number.
-     * If the end of the dialogue list is reached, it resets the dialogue number to 0.
+     * Returns the numbered lines of a character's dialogue, reading them the first time they are needed.
      *
-     * @param character The name of the character whose dialogue is to be retrieved.
+     * @param character The name of the character.
+     * @return The lines, each starting with its number, such as "[1/3] ". Empty if the character has no dialogue.
+     * @throws UncheckedIOException If the dialog files cannot be read.
      */
-    public static void getDialog(String character) {
-        ArrayList<String> characterDialog = dialog.get(character);
+    public static List<String> getLines(String character) {
+        return cache.computeIfAbsent(character, Dialog::loadLines);
+    }
 
-        for (int i = 0; i < characterDialog.size(); i++) {
-            // Display the current dialogue line with numbering
-            System.out.println(String.format("[%d/%d] ", i + 1, characterDialog.size()) + characterDialog.get(i));
+    /**
+     * Reads and numbers a character's lines, from its own file if it has one and otherwise from dialog.json.
+     */
+    private static List<String> loadLines(String character) {
+        ArrayList<String> lines = new ArrayList<>();
+        try {
+            String characterFile = CHARACTER_DIALOG_DIRECTORY + "/" + Utils.toSnakeCase(character) + ".json";
+            try (Reader reader = Utils.openDataFile(characterFile)) {
+                readLines(new JsonReader(reader), lines);
+            } catch (FileNotFoundException e) {
+                try (Reader reader = Utils.openDataFile(DIALOG_FILE)) {
+                    findLines(new JsonReader(reader), character, lines);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the dialog of " + character, e);
+        }
 
-            // Wait for 2 seconds before displaying the next line
-            Utils.waitSeconds(2);
+        for (int i = 0; i < lines.size(); i++) {
+            lines.set(i, String.format("[%d/%d] ", i + 1, lines.size()) + lines.get(i));
+        }
+        return List.copyOf(lines);
+    }
+
+    /**
+     * Reads the lines of one character from an object of every character's lines, skipping the others.
+     */
+    private static void findLines(JsonReader json, String character, ArrayList<String> lines) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            if (json.nextName().equals(character)) {
+                readLines(json, lines);
+                return; // Nothing after the character's lines is needed
+            }
+            json.skipValue();
+        }
+        json.endObject();
+    }
+
+    /**
+     * Reads an array of lines.
+     */
+    private static void readLines(JsonReader json, ArrayList<String> lines) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            lines.add(json.nextString());
         }
+        json.endArray();
     }
 }
@@ -0,0 +1,77 @@
+/**
+ * The Direction enum lists the directions a room's exits can lead in.
+ * <p>
+ * Each direction knows the word it is typed and shown as, the way it points on the map, and the direction
+ * opposite it, which the back command uses to retrace the player's steps. Rooms keep their exits in an EnumMap
+ * by direction, so moving through an exit looks it up by the direction's ordinal rather than by hashing a string.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public enum Direction {
+    NORTH("north", 0, -1), EAST("east", 1, 0), SOUTH("south", 0, 1), WEST("west", -1, 0);
+
+    private final String word; // The word the direction is typed and shown as
+    private final int dx, dy; // How far across and down the map the direction points, with north at the top
+    private Direction opposite; // The direction opposite this one
+
+    static {
+        NORTH.opposite = SOUTH;
+        EAST.opposite = WEST;
+        SOUTH.opposite = NORTH;
+        WEST.opposite = EAST;
+    }
+
+    Direction(String word, int dx, int dy) {
+        this.word = word;
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    /**
+     * Returns the direction a word stands for.
+     *
+     * @param word The word, in lower case, such as "north".
+     * @return The direction, or null if the word is not a direction.
+     */
+    public static Direction parse(String word) {
+        if (word == null) return null;
+
+        return switch (word) {
+            case "north" -> NORTH;
+            case "east" -> EAST;
+            case "south" -> SOUTH;
+            case "west" -> WEST;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return The direction opposite this one, which leads back the way the player came.
+     */
+    public Direction getOpposite() {
+        return opposite;
+    }
+
+    /**
+     * @return How far across the map the direction points: 1 for east, -1 for west and 0 otherwise.
+     */
+    public int getDx() {
+        return dx;
+    }
+
+    /**
+     * @return How far down the map the direction points: 1 for south, -1 for north and 0 otherwise.
+     */
+    public int getDy() {
+        return dy;
+    }
+
+    /**
+     * @return The word the direction is typed and shown as, such as "north".
+     */
+    @Override
+    public String toString() {
+        return word;
+    }
+}
@@ -1,8 +1,14 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Set;
 import java.util.Stack;
-import java.util.Random;
+import java.util.StringJoiner;
 
 /**
  *  This class is the main class of the "Escape from the Mystic Manor" application.
@@ -12,9 +18,9 @@ import java.util.Random;
  *  To play this game, create an instance of this class and call the "play"
  *  method.
  *  <p>
- *  This main class creates and initialises all the others: it creates the
- *  rooms, locked rooms, items, characters, inventory and creates the parser.
- *  It also adds items to rooms, adds characters to rooms, and adds items to characters.
+ *  This main class creates and initialises all the others: it builds the
+ *  rooms, locked rooms, items and characters from a {@link WorldTemplate},
+ *  and creates the inventory and the parser.
  *  It then starts the game and processes the commands entered by the player.
  *
  * @author  Michael Kölling, David J. Barnes and Mahdi Razzaque
@@ -23,140 +29,136 @@ import java.util.Random;
 
 public class Game {
     private Parser parser; // The parser to handle user inputs
+    private CommandHandler[] commandHandlers = new CommandHandler[0]; // The handler for each command word, by opcode
+    private PacedOutput out; // The stream all of the game's output is written to
 
     private Room currentRoom; // The current room the player is in
-    private Room entranceHall, library, diningRoom, kitchen, pantry, greenhouse, study, masterBedroom, hiddenChamber; // Rooms in the game
-    private HashSet<Room> visitedRooms; // Set of visited rooms
-    public static ArrayList<Room> allUnlockedRooms; // List of all unlocked rooms for the use of magic mirror
-    public static ArrayList<Room> allLockedRooms; // List of all locked rooms for the use of the magic mirror
-
-    private lockedDoor kitchenPantry, bedroomChamber; // lockedDoor objects
-    public static ArrayList<lockedDoor> lockedDoorObjects; // ArrayList of lockedDoor objects
-    private ArrayList<String> lockedDirections; // ArrayList to store locked room/directions for goRoom command
+    private BitSet visitedRooms; // The ids of the rooms the player has visited, which are the rooms shown on the map
+    private ManorMap map; // The layout of the manor, drawn by the map command
+    private String renderedMap; // The map of the visited rooms, or null if a room has been visited since it was drawn
 
     private Inventory inventory; // The player's inventory
 
-    private Item ancientBook, jewelledDagger, magicMirror, coin, holyBread, vacuum; // Items in the game
-    private Item pantryKey, chambersKey; // Keys for locked doors
+    private Item coin, vacuum; // Items the cat's riddle depends on
 
-    private Character butler, maid, ghost, cat, securityGuard; // Non-player characters in the game
+    private Character ghost, cat; // Non-player characters the puzzles depend on
 
-    public static HashMap<String, lockedDoor> lockedDoorsMap; // Maps room + direction to a lockedDoor object
-    public static HashMap<String, Item> itemMap; // Map of items
-    public static HashMap<String, Character> characterMap; // Map of characters
-    private HashMap<String, String> oppositeDirections; // Map of opposite directions for back command
+    private World world; // The registries of rooms, items, characters and locked doors for this game
+    private RoutePlanner routes; // The shortest routes between the rooms of the manor, for the go to command
 
-    private Stack<String> backCommandStack = new Stack<>();
+    private Stack<Direction> backCommandStack = new Stack<>(); // The directions which lead back the way the player came
 
     private boolean mapEnabled, randomCharacterMovement; // Flags for if map is enabled and random character movement
+    private int randomMovementChance = 100; // The chance, one in this many, of a character moving after each command
+    private boolean settingsPreset = false; // Flag for if the settings were given up front rather than asked for at the start
 
     private boolean riddleAnswered = false; // Flag to check if the cat's riddle has been answered;
+    private boolean gameWon = false; // Flag to check if the player has escaped the manor
+
+    private Journal journal; // The journal the session is recorded in, or null if it is not being journalled
+    private Path saveDirectory = Path.of(SaveFile.SAVE_DIRECTORY); // The directory the save and load commands use
+    private CommandStats stats = CommandStats.shared(); // The statistics every command is recorded in
+    private CommandStats.Verb[] verbStats = new CommandStats.Verb[0]; // The statistics of each command word, by opcode, once looked up
+    private GameClock clock = GameClock.system(); // The clock the game's paced output and simulation are timed by
+    private long simulationTickMillis; // The tick of the character simulation once the game is played, or 0 to move characters after commands
+
+    /**
+     * Constructor for the Game class which reads from and writes to the console.
+     */
+    public Game() {
+        this(System.in, StreamSink.console());
+    }
 
     /**
      * Constructor for the Game class.
      * <p>
      * This constructor initialises the game by setting up rooms, items, characters, locked doors,
      * and other necessary components. It calls various methods to create and initialise these components.
+     * <p>
+     * Every game owns its own World, so several games can be created in the same JVM without sharing state.
+     *
+     * @param in The stream the player's commands are read from.
+     * @param sink Where all of the game's output is eventually written.
      */
-    public Game() {
-        // ArrayList of all unlocked rooms (all rooms excluding hidden chambers and pantry)
-        allUnlockedRooms = new ArrayList<>();
-        allLockedRooms = new ArrayList<>();
-        lockedDoorObjects = new ArrayList<>();
-
-        createRooms();
-        parser = new Parser();
-        initialiseInventory();
-
-        //Initialise maps
-        itemMap = new HashMap<>();
-        characterMap = new HashMap<>();
-        lockedDoorsMap = new HashMap<>();
-        initialiseOppositeDirections();
+    public Game(InputStream in, OutputSink sink) {
+        this(in, sink, WorldTemplate.standard());
+    }
 
-        initialiseItems();
-        addItemsToRooms();
+    /**
+     * Constructor for the Game class which builds its manor from the given template.
+     *
+     * @param in The stream the player's commands are read from.
+     * @param sink Where all of the game's output is eventually written.
+     * @param template The manor to play in.
+     */
+    public Game(InputStream in, OutputSink sink, WorldTemplate template) {
+        world = new World(sink);
+        this.out = world.getOut();
 
-        initialiseCharacters();
-        addCharactersToRooms();
-        addItemsToCharacters();
+        createRooms(template);
+        parser = new Parser(in, world);
+        initialiseCommandHandlers();
+        initialiseInventory();
 
-        initialiseLockedDoors();
     }
 
     /**
-     * Create all the rooms and link their exits together.
+     * Create all the rooms, items, characters and locked doors from the template.
+     * <p>
+     * The cat's riddle and the ghost depend on the cat, the ghost, the coins and the vacuum,
+     * so these are looked up by name once the manor has been built.
+     *
+     * @param template The manor to build.
      */
-    private void createRooms()  {
-        // Create the rooms
-        entranceHall = new Room("Entrance Hall", "in the entrance hall of the Mystic Manor");
-        library = new Room("Library", "in the library filled with ancient books");
-        diningRoom = new Room("Dining Room", "in the grand dining room with a large table");
-        kitchen = new Room("Kitchen", "in the kitchen with a locked pantry");
-        pantry = new Room("Pantry", "in the pantry, where a vital item for your escape awaits");
-        greenhouse = new Room("Greenhouse", "in the indoor garden with exotic plants");
-        study = new Room("Study", "in the quiet study with a locked drawer");
-        masterBedroom = new Room("Master Bedroom", "in the luxurious master bedroom of the former owner");
-        hiddenChamber = new Room("Hidden Chamber", "in the hidden chamber full of secrets");
-
-        // Initialise room exits
-        // Entrance Hall exits
-        entranceHall.setExit("north", library);
-        entranceHall.setExit("east", diningRoom);
-
-        // Library exits
-        library.setExit("south", entranceHall);
-        library.setExit("north", study);
-
-        // Dining Room exits
-        diningRoom.setExit("west", entranceHall);
-        diningRoom.setExit("north", kitchen);
-
-        // Kitchen exits
-        kitchen.setExit("south", diningRoom);
-        kitchen.setExit("north", greenhouse);
-        kitchen.setExit("east", pantry);
-
-        // Pantry exits
-        pantry.setExit("west", kitchen);
-
-        // Greenhouse exits
-        greenhouse.setExit("south", kitchen);
-
-        // Study exits
-        study.setExit("south", library);
-        study.setExit("west", masterBedroom);
-
-        // Master Bedroom exits
-        masterBedroom.setExit("east", study);
-        masterBedroom.setExit("south", hiddenChamber);
-
-        // Hidden chamber exits
-        hiddenChamber.setExit("north", masterBedroom);
-
-        // Set the starting room
-        currentRoom = entranceHall;
+    private void createRooms(WorldTemplate template) {
+        // Build the manor and set the starting room
+        currentRoom = template.create(world);
+        world.setPlayerRoom(currentRoom);
+        routes = template.getRoutes();
+        map = template.getMap();
+
+        coin = world.getItemMap().get("coin");
+        vacuum = world.getItemMap().get("vacuum");
+        cat = world.getCharacterMap().get("cat");
+        ghost = world.getCharacterMap().get("ghost_of_the_former_owner");
 
         // Track visited rooms
-        visitedRooms = new HashSet<>();
-        visitedRooms.add(currentRoom);
+        visitedRooms = new BitSet(world.getRoomCount());
+        visit(currentRoom);
     }
 
     /**
      *  Main play routine.  Loops until end of play.
      */
     public void play() {
+        if (journal != null && settingsPreset) {
+            journal.recordSettings(mapEnabled, randomCharacterMovement, randomMovementChance);
+        }
         printWelcome();
+        if (simulationTickMillis > 0) {
+            world.getCharacterSimulation().start(clock, simulationTickMillis);
+        }
 
         // Enter the main command loop.  Here we repeatedly read commands and
         // execute them until the game is over.
 
         boolean finished = false;
-        while (!finished) {
-            Command command = parser.getCommand();
-            finished = processCommand(command);
+        try {
+            while (!finished) {
+                Command command = parser.getCommand();
+                finished = processCommand(command);
+                if (journal != null) journal.endCommand();
+            }
+        } finally {
+            world.getCharacterSimulation().stop(); // Stop the simulation however the session ends, even if the player disconnects
+        }
+
+        // The holy bread prints its own farewell when the game is won
+        if (!gameWon) {
+            out.println("Thank you for playing.  Good bye.");
         }
-        System.out.println("Thank you for playing.  Good bye.");
+        out.flush();
+        out.drain(); // Let any paced output finish before the session ends
     }
 
     /**
@@ -164,79 +166,155 @@ public class Game {
      * Prompts the player to change game settings such as if map is enabled and random character movement.
      */
     private void printWelcome() {
-        System.out.println();
-        System.out.println("Welcome to the Mystic Manor!");
-        System.out.println("Mystic Manor is an adventure game where you must find a way to escape.");
-        System.out.println("Type 'help' if you need assistance.");
-        System.out.println();
-
-        System.out.println("Before you venture forth, let us adjust a few settings to shape your journey.");
-        setGameValues();
+        out.println();
+        out.println("Welcome to the Mystic Manor!");
+        out.println("Mystic Manor is an adventure game where you must find a way to escape.");
+        out.println("Type 'help' if you need assistance.");
+        out.println();
+
+        if (!settingsPreset) {
+            out.println("Before you venture forth, let us adjust a few settings to shape your journey.");
+            setGameValues();
+        }
 
         currentRoom.displayRoomDetails();
     }
 
     /**
      * Given a command, process (that is: execute) the command.
+     * <p>
+     * This is package-private so the benchmarks can drive commands without going through the parser.
      *
      * @param command The command to be processed.
      * @return true If the command ends the game, false otherwise.
      */
-    private boolean processCommand(Command command) {
-        boolean wantToQuit = false;
-
+    boolean processCommand(Command command) {
         // If the command word is not found, a message is outputted and the command is ignored.
         if(command.isUnknown()) {
-            System.out.println("I don't know what you mean...");
+            stats.recordUnknownCommand();
+            out.println("I don't know what you mean...");
             return false;
         }
 
-        // Triggers characters to randomly move to adjacent rooms with a chance chosen by the player
-        // Only triggered when the player is inputting commands to prevent characters from randomly moving when the player is AFK
-        randomCharacterMovement();
+        // Time the command, keeping the time its output is paused for apart, as the command does not wait for it
+        long start = System.nanoTime();
+        long paused = out.getPausedMillis();
+        GameEvents.CommandDispatch event = new GameEvents.CommandDispatch();
+        event.begin();
+        Room room = currentRoom;
 
-        String commandWord = command.getCommandWord();
-        switch (commandWord) {
-            case "help":
-                printHelp();
-                break;
-            case "go":
-                goRoom(command);
-                break;
-            case "quit":
-                wantToQuit = quit(command);
-                break;
-            case "inventory":
-                processInventoryCommand(command);
-                break;
-            case "back":
-                processBackCommand();
-                break;
-            case "interact":
-                processInteractCommand(command);
-                break;
-            case "room":
-                processRoomCommand(command);
-                break;
-            case "use":
-                processUseCommand(command);
-                break;
-            case "answer":
-                processAnswerCommand(command);
-                break;
-            case "map":
-                processMapCommand();
-                break;
-            case "configure":
-                setGameValues();
-                break;
-            default:
-                System.out.println("Unknown command: " + commandWord);
-                break;
+        // Hold the world's lock so a running character simulation cannot tick part way through the command
+        world.getLock().lock();
+        try {
+            world.setCurrentVerb(command.getCommandWord());
+
+            // Moves any characters whose random move to an adjacent room has come due
+            // Only triggered when the player is inputting commands to prevent characters from randomly moving when the player is AFK
+            // A running simulation moves the characters on its own tick instead
+            if (!world.getCharacterSimulation().isRunning()) {
+                world.getCharacterScheduler().tick();
+            }
+
+            // Look up the handler for the command word's opcode, which the parser has already resolved
+            int verb = command.getVerb();
+            if (verb < 0 || verb >= commandHandlers.length || commandHandlers[verb] == null) {
+                world.setCurrentVerb(null);
+                stats.recordUnknownCommand();
+                out.println("Unknown command: " + command.getCommandWord());
+                return false;
+            }
+
+            try {
+                return commandHandlers[verb].handle(command);
+            } finally {
+                stats.recordCommand(getVerbStats(verb, command), System.nanoTime() - start, out.getPausedMillis() - paused);
+                event.end();
+                GameEvents.commitDispatch(event, world, command.getCommandWord(), room);
+                world.setCurrentVerb(null);
+            }
+        } finally {
+            world.getLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the statistics of a command word, looking them up the first time the word is used.
+     *
+     * @param verb The opcode of the command word.
+     * @param command A command with the command word.
+     * @return The statistics of the command word.
+     */
+    private CommandStats.Verb getVerbStats(int verb, Command command) {
+        if (verb >= verbStats.length) {
+            verbStats = Arrays.copyOf(verbStats, commandHandlers.length);
+        }
+        if (verbStats[verb] == null) {
+            verbStats[verb] = stats.getVerb(command.getCommandWord());
         }
+        return verbStats[verb];
+    }
 
-        // else command not recognised.
-        return wantToQuit;
+    /**
+     * Fills in the dispatch table with the handlers for the built-in command words.
+     */
+    private void initialiseCommandHandlers() {
+        setCommandHandler(CommandWords.GO, command -> { goRoom(command); return false; });
+        setCommandHandler(CommandWords.BACK, command -> { processBackCommand(); return false; });
+        setCommandHandler(CommandWords.HELP, command -> { printHelp(); return false; });
+        setCommandHandler(CommandWords.INVENTORY, command -> { processInventoryCommand(command); return false; });
+        setCommandHandler(CommandWords.INTERACT, command -> { processInteractCommand(command); return false; });
+        setCommandHandler(CommandWords.USE, command -> { processUseCommand(command); return gameWon; });
+        setCommandHandler(CommandWords.ANSWER, command -> { processAnswerCommand(command); return false; });
+        setCommandHandler(CommandWords.ROOM, command -> { processRoomCommand(command); return false; });
+        setCommandHandler(CommandWords.MAP, command -> { processMapCommand(); return false; });
+        setCommandHandler(CommandWords.CONFIGURE, command -> { setGameValues(); return false; });
+        setCommandHandler(CommandWords.SAVE, command -> { processSaveCommand(command); return false; });
+        setCommandHandler(CommandWords.LOAD, command -> { processLoadCommand(command); return false; });
+        setCommandHandler(CommandWords.QUIT, this::quit);
+    }
+
+    /**
+     * Sets the handler in the dispatch table for a command word's opcode.
+     *
+     * @param opcode The opcode of the command word.
+     * @param handler The handler for the command word.
+     */
+    private void setCommandHandler(int opcode, CommandHandler handler) {
+        if (opcode >= commandHandlers.length) {
+            commandHandlers = Arrays.copyOf(commandHandlers, opcode + 1);
+        }
+        commandHandlers[opcode] = handler;
+    }
+
+    /**
+     * Adds the admin commands to the game, which show how the server is running rather than play the game.
+     * These are given to the player at the console and, if the server is started with --admin, to its players.
+     */
+    public void enableAdminCommands() {
+        addCommand("stats", "stats - Show how many commands have been carried out and how long they took",
+                command -> { out.print(stats.report()); return false; });
+    }
+
+    /**
+     * Adds a new command word to the game, such as one provided by a plugin.
+     * <p>
+     * The word is recognised by the parser from then on, is listed by help, and its commands are passed to the handler.
+     *
+     * @param word The command word.
+     * @param description The description of the command shown by help, e.g. "dance - Dance a jig".
+     * @param handler The handler which carries out the command.
+     */
+    public void addCommand(String word, String description, CommandHandler handler) {
+        setCommandHandler(parser.addCommand(word, description), handler);
+    }
+
+    /**
+     * Returns the world of this game, so that added commands can reach its rooms, items, characters and output.
+     *
+     * @return The game's world.
+     */
+    public World getWorld() {
+        return world;
     }
 
     // Implementations of user commands:
@@ -246,10 +324,10 @@ public class Game {
      * command words.
      */
     private void printHelp() {
-        System.out.println("You are trapped in the Mystic Manor. You must find clues to escape.");
-        System.out.println("Explore the rooms and gather the necessary items to unlock the front door.");
-        System.out.println();
-        System.out.println("Your command words are:");
+        out.println("You are trapped in the Mystic Manor. You must find clues to escape.");
+        out.println("Explore the rooms and gather the necessary items to unlock the front door.");
+        out.println();
+        out.println("Your command words are:");
         parser.showCommands();
     }
 
@@ -260,40 +338,122 @@ public class Game {
     private void goRoom(Command command) {
         if(!command.hasSecondWord()) {
             // if there is no second word, we don't know where to go...
-            System.out.println("Go where?");
+            out.println("Go where?");
             return;
         }
 
-        String direction = command.getSecondWord();
+        if (command.getSecondWord().equals("to")) {
+            goToRoom(command);
+            return;
+        }
 
         // Try to leave current room.
-        Room nextRoom = currentRoom.getExit(direction);
+        Direction direction = command.getDirection();
+        Room nextRoom = direction == null ? null : currentRoom.getExit(direction);
 
         if (nextRoom == null) {
-            System.out.println("There is no door!");
+            out.println("There is no door!");
             return;
         }
 
         // Check if the direction is locked
-        if (lockedDirections.contains(Utils.roomDirToSnake(currentRoom, direction))) {
-            lockedDoor lockedDoor = lockedDoorsMap.get(Utils.roomDirToSnake(currentRoom, direction));
-
+        lockedDoor lockedDoor = currentRoom.getLockedDoor(direction);
+        if (lockedDoor != null) {
             // If the player doesn't have the key, prevent entry and display a message
             if (inventory.numberOfItem(lockedDoor.getKey()) == 0) {
-                System.out.println("Door is locked!");
-                System.out.printf("To enter this room you must find the %s.\n", lockedDoor.getKey().getName());
+                out.println("Door is locked!");
+                out.printf("To enter this room you must find the %s.\n", lockedDoor.getKey().getName());
                 return;
             }
         }
 
         // Add the opposite direction to the back command stack for backtracking
-        backCommandStack.push(oppositeDirections.get(direction));
-        //System.out.println(backCommandStack);
+        backCommandStack.push(direction.getOpposite());
 
         // Move the player to the next room and display its details
+        recordRoomTransition(currentRoom, nextRoom);
         currentRoom = nextRoom;
         currentRoom.displayRoomDetails();
-        visitedRooms.add(currentRoom); // Mark the room as visited
+        visit(currentRoom); // Mark the room as visited
+    }
+
+    /**
+     * Walks the player along the shortest route to the room named after "go to", through any locked doors
+     * they hold the key for. Each room along the way is visited as though the player had gone there one step
+     * at a time, so the back command retraces the route, but only the room at the end is displayed.
+     *
+     * @param command The go command, whose third and later words are the name of the room.
+     */
+    private void goToRoom(Command command) {
+        if (!command.hasThirdWord()) {
+            out.println("Go to where?");
+            return;
+        }
+
+        // Room names may be typed with spaces or with underscores, as character names are
+        StringBuilder name = new StringBuilder(command.getThirdWord());
+        for (int i = 3; i < command.getWordCount(); i++) {
+            name.append(' ').append(command.getWord(i));
+        }
+        int destination = routes.indexOfRoom(name.toString().replace('_', ' '));
+        if (destination < 0) {
+            out.println("There is no room called " + name + ".");
+            return;
+        }
+        if (destination == currentRoom.getId()) {
+            out.println("You are already in the " + currentRoom.getName() + ".");
+            return;
+        }
+
+        // The locked doors the player holds the key for, in the order the world registered them
+        BitSet openDoors = new BitSet();
+        ArrayList<lockedDoor> doors = world.getLockedDoorObjects();
+        for (int d = 0; d < doors.size(); d++) {
+            if (inventory.numberOfItem(doors.get(d).getKey()) > 0) openDoors.set(d);
+        }
+
+        Direction[] directions = routes.route(currentRoom.getId(), destination, openDoors);
+        if (directions == null) {
+            printLockedRoute(destination);
+            return;
+        }
+
+        StringJoiner route = new StringJoiner(", then ", "You go ", ".");
+        for (Direction direction : directions) {
+            backCommandStack.push(direction.getOpposite());
+            Room nextRoom = currentRoom.getExit(direction);
+            recordRoomTransition(currentRoom, nextRoom);
+            currentRoom = nextRoom;
+            visit(currentRoom);
+            route.add(direction.toString());
+        }
+        out.println(route);
+        currentRoom.displayRoomDetails();
+    }
+
+    /**
+     * Explains why there is no route to a room: either it cannot be reached at all, or the way is
+     * barred by a locked door, in which case the key to the first such door on the way is named.
+     *
+     * @param destination The id of the room.
+     */
+    private void printLockedRoute(int destination) {
+        Direction[] directions = routes.route(currentRoom.getId(), destination, null);
+        if (directions == null) {
+            out.println("There is no way to get there from here.");
+            return;
+        }
+
+        Room room = currentRoom;
+        for (Direction direction : directions) {
+            lockedDoor door = room.getLockedDoor(direction);
+            if (door != null && inventory.numberOfItem(door.getKey()) == 0) {
+                out.println("The way there is locked!");
+                out.printf("To get there you must find the %s.\n", door.getKey().getName());
+                return;
+            }
+            room = room.getExit(direction);
+        }
     }
 
     /**
@@ -301,10 +461,11 @@ public class Game {
      * the player enters the new room and the room's description is displayed.
      * This method is used for the back command
      *
-     * @param direction The direction in which the player wants to move (e.g., "north", "east").
+     * @param direction The direction in which the player wants to move (e.g., Direction.NORTH).
      */
-    private void goRoom(String direction) {
+    private void goRoom(Direction direction) {
         Room nextRoom = currentRoom.getExit(direction);
+        recordRoomTransition(currentRoom, nextRoom);
         currentRoom = nextRoom;
         currentRoom.displayRoomDetails();
     }
@@ -315,8 +476,36 @@ public class Game {
      * @param room The room to which the player will move.
      */
     private void goRoom(Room room) {
+        recordRoomTransition(currentRoom, room);
         currentRoom = room;
         currentRoom.displayRoomDetails();
+        visit(currentRoom);
+    }
+
+    /**
+     * Counts the player moving from one room to another and records it for the flight recorder, before the
+     * player's current room is changed.
+     *
+     * @param from The room the player is leaving.
+     * @param to The room the player is entering.
+     */
+    private void recordRoomTransition(Room from, Room to) {
+        stats.recordRoomTransition();
+        world.setPlayerRoom(to);
+        GameEvents.roomTransition(world, from, to);
+    }
+
+    /**
+     * Marks a room as visited, so it is shown on the map. The map is drawn again the next time it is shown
+     * only if the room has not been visited before.
+     *
+     * @param room The room the player has entered.
+     */
+    private void visit(Room room) {
+        if (!visitedRooms.get(room.getId())) {
+            visitedRooms.set(room.getId());
+            renderedMap = null;
+        }
     }
 
     /**
@@ -327,7 +516,7 @@ public class Game {
      */
     private boolean quit(Command command) {
         if(command.hasSecondWord()) {
-            System.out.println("Quit what?");
+            out.println("Quit what?");
             return false;
         }
         else {
@@ -346,29 +535,30 @@ public class Game {
      */
     private void processInventoryCommand(Command command) {
         if (!command.hasSecondWord()) {
-            System.out.println("Available inventory commands: " + "\n" +
+            out.println("Available inventory commands: " + "\n" +
                     "inventory display - Display current inventory" + "\n" +
                     "inventory drop [item] [quantity] - Drop an item from your inventory" + "\n" +
                     "inventory pickup [item] [quantity] - Pick up an item from the current room");
             return;
         }
+        stats.recordInventoryOperation();
 
-        switch (command.getSecondWord()) {
-            case "display":
+        switch (command.getSubcommand()) {
+            case CommandWords.INVENTORY_DISPLAY:
                 inventory.displayInventory();
                 break;
-            case "drop":
+            case CommandWords.INVENTORY_DROP:
                 if (!command.hasThirdWord()) {
-                    System.out.println("Drop what item?");
+                    out.println("Drop what item?");
                     inventory.displayInventorySelection();
                     break;
                 }
 
                 processDropItem(command);
                 break;
-            case "pickup":
+            case CommandWords.INVENTORY_PICKUP:
                 if (!command.hasThirdWord()) {
-                    System.out.println("Pick up what item?");
+                    out.println("Pick up what item?");
                     currentRoom.displayRoomInventorySelection();
                     break;
                 }
@@ -376,7 +566,7 @@ public class Game {
                 processPickupItem(command);
                 break;
             default:
-                System.out.println("Available inventory commands: " + "\n" +
+                out.println("Available inventory commands: " + "\n" +
                         "inventory display - Display current inventory" + "\n" +
                         "inventory drop [item] [quantity] - Drop an item from your inventory" + "\n" +
                         "inventory pickup [item] [quantity] - Pick up an item from the current room");
@@ -395,25 +585,25 @@ public class Game {
         int quantity;
 
         // Check if the item exists in the item map
-        if (!itemMap.containsKey(itemName)) {
-            System.out.println("Item not found");
+        if (!world.getItemMap().containsKey(itemName)) {
+            out.println("Item not found");
             inventory.displayInventorySelection();
             return;
         }
 
-        Item itemToBeDropped = itemMap.get(itemName); // Retrieve the item object from the item map
+        Item itemToBeDropped = world.getItemMap().get(itemName); // Retrieve the item object from the item map
 
         try {
             // Determine the quantity to drop, either from the command or default to the total quantity in inventory
             quantity = command.hasFourthWord() ? Integer.parseInt(command.getFourthWord()) : inventory.numberOfItem(itemToBeDropped);
         } catch (NumberFormatException e) {
-            System.out.println("Please specify a valid quantity.");
+            out.println("Please specify a valid quantity.");
             return;
         }
 
         // Check if the player has enough of the item to drop the specified quantity
         if (inventory.numberOfItem(itemToBeDropped) < quantity || quantity == 0) {
-            System.out.println("You do not have enough " + itemName.replace("_", " ") + "s to drop");
+            out.println("You do not have enough " + itemName.replace("_", " ") + "s to drop");
             return;
         }
 
@@ -434,26 +624,26 @@ public class Game {
         int quantity;
 
         // Check if the item exists in the item map
-        if (!itemMap.containsKey(itemName)) {
-            System.out.println("Item not found");
+        if (!world.getItemMap().containsKey(itemName)) {
+            out.println("Item not found");
             currentRoom.displayRoomInventorySelection();
             return;
         }
 
-        Item itemToBePickedUp = itemMap.get(itemName); // Retrieve the item object from the item map
+        Item itemToBePickedUp = world.getItemMap().get(itemName); // Retrieve the item object from the item map
 
         try {
             // Determine the quantity to pick up, either from the command or default to the total quantity in the room
             quantity = command.hasFourthWord() ? Integer.parseInt(command.getFourthWord())
                     : currentRoom.numberOfItemInRoomInventory(itemToBePickedUp);
         } catch (NumberFormatException e) {
-            System.out.println("Please specify a valid quantity.");
+            out.println("Please specify a valid quantity.");
             return;
         }
 
         // Check if there is enough of the item in the room
         if (currentRoom.numberOfItemInRoomInventory(itemToBePickedUp) < quantity || quantity == 0) {
-            System.out.println("Insufficient quantity in the room.");
+            out.println("Insufficient quantity in the room.");
             return;
         }
 
@@ -468,7 +658,7 @@ public class Game {
      */
     private void processBackCommand() {
         if (backCommandStack.isEmpty()) {
-            System.out.println("There are no rooms for you to go back to.");
+            out.println("There are no rooms for you to go back to.");
             return;
         }
 
@@ -485,8 +675,8 @@ public class Game {
     private void processInteractCommand(Command command) {
         if (!command.hasSecondWord()) {
             // Prompt the player to state the character to interact with if not provided
-            System.out.println("State the character you want to interact with: ");
-            System.out.println("interact [character_name]");
+            out.println("State the character you want to interact with: ");
+            out.println("interact [character_name]");
             currentRoom.displayCharacterSelection();
             return;
         }
@@ -494,20 +684,20 @@ public class Game {
         String characterSelected = command.getSecondWord(); // Get the character name from the command
 
         // Check if the character exists in the character map
-        if (!characterMap.containsKey(characterSelected)) {
+        if (!world.getCharacterMap().containsKey(characterSelected)) {
             // Prompt the player again to state the character if not found
-            System.out.println("State the character you want to interact with: ");
+            out.println("State the character you want to interact with: ");
             currentRoom.displayCharacterSelection();
             return;
         }
 
-        Character character = characterMap.get(characterSelected);
+        Character character = world.getCharacterMap().get(characterSelected);
 
         String characterRoomName = character.getCurrentRoom().getName(); // Get the name of the room where the cat is located
 
         // Check if the player is in the same room as the character
         if (!currentRoom.getName().equals(characterRoomName)) {
-            System.out.println("You can only converse with those who share your current space.");
+            out.println("You can only converse with those who share your current space.");
             return;
         }
 
@@ -524,19 +714,19 @@ public class Game {
     private void processRoomCommand(Command command) {
         if (!command.hasSecondWord()) {
             // Display available room commands if no second word is provided
-            System.out.println("Available room commands: " + "\n" +
+            out.println("Available room commands: " + "\n" +
                     "room info - Display information about the current room");
             return;
         }
 
-        switch (command.getSecondWord()) {
-            case "info":
+        switch (command.getSubcommand()) {
+            case CommandWords.ROOM_INFO:
                 // Display details of the current room
                 currentRoom.displayRoomDetails();
                 break;
             default:
                 // Display available room commands if the command is not recognised
-                System.out.println("Available room commands: " + "\n" +
+                out.println("Available room commands: " + "\n" +
                         "room info - Display information about the current room");
         }
     }
@@ -554,7 +744,7 @@ public class Game {
     private void processUseCommand(Command command) {
         if (!command.hasSecondWord()) {
             // Prompt the player to state the item to use if not provided
-            System.out.println("Use what item?");
+            out.println("Use what item?");
             inventory.displayInventorySelection();
             return;
         }
@@ -562,15 +752,15 @@ public class Game {
         String itemName = command.getSecondWord(); // Get the item name from the command
 
         // Check if the item exists in the item map
-        if (!itemMap.containsKey(itemName)) {
-            System.out.println("Item not found");
+        if (!world.getItemMap().containsKey(itemName)) {
+            out.println("Item not found");
             inventory.displayInventorySelection();
             return;
         }
 
         // Check if the player has the item in their inventory
-        if (inventory.numberOfItem(itemMap.get(itemName)) == 0) {
-            System.out.println("You cannot use an item that you do not have.");
+        if (inventory.numberOfItem(world.getItemMap().get(itemName)) == 0) {
+            out.println("You cannot use an item that you do not have.");
             return;
         }
 
@@ -579,22 +769,22 @@ public class Game {
 
         switch (itemName) {
             case "coin":
-                System.out.println("You can only trade coins not use them.");
+                out.println("You can only trade coins not use them.");
                 break;
 
             case "ancient_book":
                 // Display cryptic messages related to the ancient book
-                System.out.println(
+                out.println(
                         "In shadows deep where secrets lie, A path to freedom draws you night. " + "\n" +
                                 "Five coins to feline, sleek and sly, Unlock the truth, let whispers fly."
                 );
-                Utils.waitSeconds(3);
-                System.out.println(
+                out.pause(3);
+                out.println(
                         "A dagger’s gleam, though jewels may blaze, A futile weapon in ghostly haze. " + "\n" +
                                 "Seek the feline's riddles, full of grace, To start anew in hall’s embrace."
                 );
-                Utils.waitSeconds(3);
-                System.out.println(
+                out.pause(3);
+                out.println(
                         "The bread of sacred light will show, The door to realms where you must go. " + "\n" +
                                 "Follow clues, and wisdom gleam, To wake the dawn from twilight’s dream."
                 );
@@ -603,7 +793,7 @@ public class Game {
             case "jewelled_dagger":
                 // Prompt the player to state what to use the item on
                 if (!command.hasThirdWord()) {
-                    System.out.println("Use on what?");
+                    out.println("Use on what?");
                     currentRoom.displayCharacterSelection();
                     return;
                 }
@@ -611,76 +801,75 @@ public class Game {
                 characterSelected = command.getThirdWord(); // Get the character name to use the dagger on
 
                 // Check if the character exists in the character map
-                if (!characterMap.containsKey(characterSelected)) {
-                    System.out.println("State the character you want to attack: ");
+                if (!world.getCharacterMap().containsKey(characterSelected)) {
+                    out.println("State the character you want to attack: ");
                     currentRoom.displayCharacterSelection();
                     return;
                 }
 
-                character = characterMap.get(characterSelected);
+                character = world.getCharacterMap().get(characterSelected);
 
                 // Check if the character is in the current room
                 if (!currentRoom.getCharacters().contains(character)) {
-                    System.out.println("You can't attack a character in a different room");
+                    out.println("You can't attack a character in a different room");
                     return;
                 }
 
                 // Check if the character is passive
                 if (character.getPassive()) {
-                    System.out.println("Now why would you want to attack a passive character...");
+                    out.println("Now why would you want to attack a passive character...");
                     return;
                 }
 
                 // Special case for the Ghost of the Former Owner
                 if (character.getName().equals("Ghost of the Former Owner")) {
-                    System.out.println("As you brandish the jewelled dagger, the ghost of the former owner gazes at you with a mix of pity and amusement.");
-                    Utils.waitSeconds(3);  // Pause for 3 seconds
-                    System.out.println("'Mortal weaponry holds no power over the ethereal,' the ghost whispers, the dagger's jewels flickering dimly.");
-                    Utils.waitSeconds(3);  // Pause for 3 seconds
-                    System.out.println("'Seek a different path to banish me from this realm.'");
+                    out.println("As you brandish the jewelled dagger, the ghost of the former owner gazes at you with a mix of pity and amusement.");
+                    out.pause(3);  // Pause for 3 seconds
+                    out.println("'Mortal weaponry holds no power over the ethereal,' the ghost whispers, the dagger's jewels flickering dimly.");
+                    out.pause(3);  // Pause for 3 seconds
+                    out.println("'Seek a different path to banish me from this realm.'");
                     return;
                 }
                 break;
 
             case "magic_mirror":
                 // Use the magic mirror to transport to a random room
-                Random random = new Random();
-                int index = random.nextInt(allUnlockedRooms.size());
-                System.out.println(
+                int index = world.nextRandom(world.getAllUnlockedRooms().size());
+                out.println(
                         "You gaze into the magic mirror, its surface shimmering with hidden truths." + "\n" +
                         "As your reflection wavers, a sudden flash of light surrounds you, and you feel a gentle pull. " + "\n" +
                         "In an instant, you are transported to a random room, its unfamiliar surroundings both exciting and mysterious."
                 );
                 //Clear the backCommandStack to prevent errors
                 backCommandStack.clear();
-                System.out.println("The magic of the mirror wipes away your recent steps, leaving only the path ahead to explore.");
-                Utils.waitSeconds(3);
-                goRoom(allUnlockedRooms.get(index));
+                out.println("The magic of the mirror wipes away your recent steps, leaving only the path ahead to explore.");
+                out.pause(3);
+                goRoom(world.getAllUnlockedRooms().get(index));
                 break;
 
             case "holy_bread":
                 // Use the holy bread for a special effect
-                System.out.println("As you consume the holy bread, a warmth spreads through your body.");
-                Utils.waitSeconds(2);
-                System.out.println("A radiant light fills the room, and you feel a deep sense of peace and fulfilment.");
-                Utils.waitSeconds(2);
-                System.out.println("Suddenly, you find yourself outside the manor, safe and free.");
-                Utils.waitSeconds(2);
-                System.out.println("Your quest is complete, brave traveller. The world is saved.");
-                Utils.waitSeconds(2);
-                System.out.println("Thank you for playing. Until next time, adventurer.");
-                System.exit(0);
+                out.println("As you consume the holy bread, a warmth spreads through your body.");
+                out.pause(2);
+                out.println("A radiant light fills the room, and you feel a deep sense of peace and fulfilment.");
+                out.pause(2);
+                out.println("Suddenly, you find yourself outside the manor, safe and free.");
+                out.pause(2);
+                out.println("Your quest is complete, brave traveller. The world is saved.");
+                out.pause(2);
+                out.println("Thank you for playing. Until next time, adventurer.");
+                gameWon = true; // End the game loop rather than exiting the JVM, which may be hosting other games
                 break;
 
             case "pantry_key", "chambers_key":
-                System.out.println("You do not need to use the key.");
-                System.out.println("Use the `go` command with the key in your inventory to unlock the door.");
+                out.println("You do not need to use the key.");
+                out.println("Use the `go` command with the key in your inventory to unlock the door.");
                 break;
 
             case "vacuum":
                 // Prompt the player to state what to use the item on
                 if (!command.hasThirdWord()) {
-                    System.out.println("Use on what?");
+                    out.println("Use on what?");
                     currentRoom.displayCharacterSelection();
                     return;
                 }
@@ -688,47 +877,47 @@ public class Game {
                 characterSelected = command.getThirdWord(); // Get the character name to use the vacuum on
 
                 // Check if the character exists in the character map
-                if (!characterMap.containsKey(characterSelected)) {
-                    System.out.println("State the character you want to clean: ");
+                if (!world.getCharacterMap().containsKey(characterSelected)) {
+                    out.println("State the character you want to clean: ");
                     currentRoom.displayCharacterSelection();
                     return;
                 }
 
-                character = characterMap.get(characterSelected);
+                character = world.getCharacterMap().get(characterSelected);
 
                 // Check if the character is in the current room
                 if (!currentRoom.getCharacters().contains(character)) {
-                    System.out.println("You can't clean a character in a different room");
+                    out.println("You can't clean a character in a different room");
                     return;
                 }
 
                 // Special case for passive characters
                 if (character.getPassive()) {
                     character.kill();
-                    System.out.printf(
+                    out.printf(
                             "A wave of sorrow washes over the room as you realise that the %s is gone forever.\n",
                             character.getName());
-                    System.out.println("They wouldn't have tried to hurt you. Why would you do such a thing?");
+                    out.println("They wouldn't have tried to hurt you. Why would you do such a thing?");
                     return;
                 }
 
                 // Special case for the Ghost of the Former Owner
                 if (character.getName().equals("Ghost of the Former Owner")) {
-                    System.out.println("So, you have discovered my weakness...");
-                    Utils.waitSeconds(2);
-                    System.out.println("I feel the strength draining from me...");
-                    Utils.waitSeconds(2);
-                    System.out.println("You have defeated me, your victory is assured.");
-                    Utils.waitSeconds(2);
-                    System.out.println("The path ahead is now clear. Farewell...");
-                    System.out.println("With a final, sorrowful glance, the ghost drops the chamber's key, fading away into the ether.");
+                    out.println("So, you have discovered my weakness...");
+                    out.pause(2);
+                    out.println("I feel the strength draining from me...");
+                    out.pause(2);
+                    out.println("You have defeated me, your victory is assured.");
+                    out.pause(2);
+                    out.println("The path ahead is now clear. Farewell...");
+                    out.println("With a final, sorrowful glance, the ghost drops the chamber's key, fading away into the ether.");
                     ghost.kill();
                     return;
                 }
                 break;
 
             default:
-                System.out.println("Item not found");
+                out.println("Item not found");
                 inventory.displayInventorySelection();
                 break;
         }
@@ -746,12 +935,12 @@ public class Game {
     private void processAnswerCommand(Command command) {
         // Check if the player has interacted with the cat
         if (!cat.getInteractedWith()) {
-            System.out.println("You must first uncover the riddle before attempting to answer.");
+            out.println("You must first uncover the riddle before attempting to answer.");
             return;
         }
 
         if(riddleAnswered) {
-            System.out.println("The cat's riddle has already been deciphered.");
+            out.println("The cat's riddle has already been deciphered.");
             return;
         }
 
@@ -759,19 +948,19 @@ public class Game {
 
         // Check if the player is in the same room as the cat
         if (!currentRoom.getName().equals(catRoomName)) {
-            System.out.println("The cat's riddle remains unsolved without its presence.");
+            out.println("The cat's riddle remains unsolved without its presence.");
             return;
         }
 
         // Check if the player has at least five coins
         if (inventory.numberOfItem(coin) < 5) {
-            System.out.println("The path remains closed until you possess at least five coins.");
+            out.println("The path remains closed until you possess at least five coins.");
             return;
         }
 
         // Check if the command has a second word (the answer to the riddle)
         if (!command.hasSecondWord()) {
-            System.out.println("The riddle stands unanswered. Provide your response to proceed.");
+            out.println("The riddle stands unanswered. Provide your response to proceed.");
             return;
         }
 
@@ -779,17 +968,17 @@ public class Game {
 
         // Check if the answer is correct
         if (!answer.equalsIgnoreCase("vacuum") && !answer.equalsIgnoreCase("hoover")) {
-            System.out.println("The riddle remains unsolved. Try again.");
+            out.println("The riddle remains unsolved. Try again.");
             return;
         }
 
         // Special message if the answer is "hoover"
         if (answer.equalsIgnoreCase("hoover")) {
-            System.out.println("Ah, you're quite the clever one! The true answer is 'vacuum' but I'll let 'hoover' slide.");
+            out.println("Ah, you're quite the clever one! The true answer is 'vacuum' but I'll let 'hoover' slide.");
         }
 
         // Correct answer response
-        System.out.println("Purrfect! You've cracked the riddle. " + "\n" +
+        out.println("Purrfect! You've cracked the riddle. " + "\n" +
                 "As promised, I shall give you the key to your escape. Use it wisely, traveller.");
 
 
@@ -797,7 +986,7 @@ public class Game {
         // If it does, a message prompts the player to free up space in the inventory and try again.
         if (inventory.getWeight() + vacuum.getWeight() > inventory.getMaxWeight()) {
             // Inform the player that their inventory is too heavy to claim the reward
-            System.out.println("Your burden is too great to claim the reward. Free up some space in your inventory, then try again.");
+            out.println("Your burden is too great to claim the reward. Free up some space in your inventory, then try again.");
             return;
         }
 
@@ -814,7 +1003,7 @@ public class Game {
      */
     private void processMapCommand() {
         if(!mapEnabled) {
-            System.out.println("Map is disabled.");
+            out.println("Map is disabled.");
             return;
         }
         // Initially the player had to explore all rooms to access the map, but then I realised this would not work, as
@@ -822,8 +1011,8 @@ public class Game {
         // point the player would not need the map. So I decided to allow the player to enable/disable the map if they
         // want to.
         /*
-        if(visitedRooms.size() != 9) {
-            System.out.println("To unlock the secrets of the map, you must first journey through every chamber.");
+        if(visitedRooms.cardinality() != 9) {
+            out.println("To unlock the secrets of the map, you must first journey through every chamber.");
             return;
         }
         */
@@ -844,20 +1033,20 @@ public class Game {
     public void givePlayerItem(Character character, Item item, Integer quantity) {
         // Check if the character has fewer items than the specified quantity
         if (character.numberOfItemInCharacterInventory(item) < quantity) {
-            System.out.println("Character cannot give more items than they have");
+            out.println("Character cannot give more items than they have");
             return;
         }
 
         // Check if the item exists in the item map
-        if (!itemMap.containsKey(item.getName())) {
-            System.out.println("Item not found");
+        if (!world.getItemMap().containsKey(item.getName())) {
+            out.println("Item not found");
             return;
         }
 
         // Checks if adding the item(s) to the player's inventory would exceed the maximum weight limit.
         // If it does, the item is not added to the players inventory and a message is displayed
         if (inventory.getWeight() + (item.getWeight() * quantity) > inventory.getMaxWeight()) {
-            System.out.println("The player does not have enough inventory space to receive this item");
+            out.println("The player does not have enough inventory space to receive this item");
             return;
         }
 
@@ -869,168 +1058,137 @@ public class Game {
     }
 
     /**
-     * Initialises the items in the game.
+     * Initialises the inventory
      */
-    private void initialiseItems() {
-        ancientBook = new Item("ancient book", 20);
-        jewelledDagger = new Item("jewelled dagger", 15);
-        magicMirror = new Item("magic mirror", 5);
-        coin = new Item("coin", 1);
-        holyBread = new Item("holy bread", 10);
-        vacuum = new Item("vacuum", 10);
-
-        pantryKey = new Item("pantry key", 5);
-        chambersKey = new Item("chambers key", 5);
+    private void initialiseInventory() {
+        inventory = new Inventory(world, 50);
     }
 
     /**
-     * Initialises the characters in the game.
+     * Displays the map of the rooms the player has visited.
+     * <p>
+     * The map is laid out from the room graph by {@link ManorMap}, with the rooms the player has not yet visited
+     * hidden. It is drawn once and kept until the player visits a new room, so showing the map again is a single write.
      */
-    private void initialiseCharacters() {
-        butler = new Character("Butler", true, 100, entranceHall);
-        maid = new Character("Maid", true, 80, kitchen);
-        ghost = new Character("Ghost of the Former Owner", false, 150, masterBedroom);
-        cat = new Character("Cat", true, 60, library);
-        securityGuard = new Character("Security Guard", true, 120, entranceHall);
+    private void displayMap() {
+        if (renderedMap == null) {
+            renderedMap = map.render(visitedRooms);
+        }
+        out.print(renderedMap);
     }
 
     /**
-     * Initialises the inventory
+     * Sets the game settings up front, so the player is not asked for them when the game starts.
+     * <p>
+     * This is used by scripted runs, where there is no player to answer the prompts.
+     *
+     * @param mapEnabled Whether the map is enabled.
+     * @param difficulty The difficulty of random character movement ('easy', 'medium' or 'hard'),
+     *                   or null to disable random character movement.
      */
-    private void initialiseInventory() {
-        inventory = new Inventory(50);
+    public void presetGameValues(boolean mapEnabled, String difficulty) {
+        this.mapEnabled = mapEnabled;
+        applyRandomMovementValues(difficulty);
+        settingsPreset = true;
     }
 
     /**
-     * Initialises the lockedDoors objects in the game.
-     * <p>
-     * This method creates lockedDoors within the game. Each lockedDoor takes a room and a direction to lock.
-     * The room name and direction is concatenated to store the position of the locked door.
-     * When moving rooms, the game checks to see if the current room the player is in,
-     * and the direction they're trying to move in is locked.
+     * Sets the clock the game's paced output is timed by, such as a {@link VirtualClock} for a session which
+     * should run at full speed. This should be done before the game is played.
+     *
+     * @param clock The clock.
      */
-    private void initialiseLockedDoors() {
-        // Convert room and direction to a string format used for identifying locked doors
-        String kitchenEast = Utils.roomDirToSnake(kitchen, "east");
-        String bedroomSouth = Utils.roomDirToSnake(masterBedroom, "south");
-
-        // Create locked doors with corresponding keys
-        kitchenPantry = new lockedDoor(kitchen, "east", pantryKey);
-        bedroomChamber = new lockedDoor(masterBedroom, "south", chambersKey);
-
-        // Initialise the list of locked directions
-        lockedDirections = new ArrayList<>();
-        lockedDirections.add(kitchenEast);
-        lockedDirections.add(bedroomSouth);
+    public void setClock(GameClock clock) {
+        this.clock = clock;
+        out.setClock(clock);
     }
 
     /**
-     * Initialises a HashMap that maps each direction (north, east, south, west) to its opposite direction.
+     * Moves the characters on a fixed tick of the game's clock, rather than after the player's commands,
+     * using a {@link CharacterSimulation}. This should be done before the game is played. The simulation
+     * starts once the settings have been asked for or preset, as they change the characters the simulation
+     * reads, and stops when the game ends.
+     *
+     * @param tickMillis The time between ticks in milliseconds.
      */
-    private void initialiseOppositeDirections() {
-        oppositeDirections = new HashMap<>();
-        oppositeDirections.put("north", "south");
-        oppositeDirections.put("east", "west");
-        oppositeDirections.put("south", "north");
-        oppositeDirections.put("west", "east");
+    public void startCharacterSimulation(long tickMillis) {
+        simulationTickMillis = tickMillis;
     }
 
     /**
-     * Adds all characters to their corresponding rooms.
+     * Seeds the game's random choices, so that the same seed and the same commands always play out the same way.
+     *
+     * @param seed The seed.
      */
-    private void addCharactersToRooms() {
-        entranceHall.addCharacter(butler);
-        entranceHall.addCharacter(securityGuard);
-        library.addCharacter(cat);
-        kitchen.addCharacter(maid);
-        masterBedroom.addCharacter(ghost);
+    public void setSeed(long seed) {
+        world.setSeed(seed);
     }
 
     /**
-     * Adds specific items to the inventories of characters in the game.
+     * Sets the directory the save and load commands keep their saves in, such as a directory of the session's own
+     * on a server, where every player would otherwise share the same saves.
+     *
+     * @param saveDirectory The directory.
      */
-    private void addItemsToCharacters() {
-        ghost.addItemToCharacterInventory(chambersKey, 1);
-        cat.addItemToCharacterInventory(vacuum, 1);
+    public void setSaveDirectory(Path saveDirectory) {
+        this.saveDirectory = saveDirectory;
     }
 
     /**
-     * Adds items around the map
+     * Records the session in a journal as it is played: each line of input, the preset settings and the outcome
+     * of each random choice. The journal is not closed when the game ends.
+     *
+     * @param journal The journal to record the session in.
      */
-    private void addItemsToRooms() {
-        // Add coins to various rooms
-        entranceHall.addItemToRoomInventory(coin, 1);
-        library.addItemToRoomInventory(coin, 1);
-        diningRoom.addItemToRoomInventory(coin, 1);
-        kitchen.addItemToRoomInventory(coin, 1);
-        study.addItemToRoomInventory(coin, 1);
-
-        // Add holy bread to the pantry
-        pantry.addItemToRoomInventory(holyBread, 1);
-
-        // Add ancient book to the library
-        library.addItemToRoomInventory(ancientBook, 1);
-
-        // Add jewelled dagger to greenhouse
-        greenhouse.addItemToRoomInventory(jewelledDagger, 1);
-
-        // Add magic mirror to the study
-        study.addItemToRoomInventory(magicMirror, 1);
-
-        //Add pantry key to hidden chambers
-        hiddenChamber.addItemToRoomInventory(pantryKey, 1);
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+        parser.setJournal(journal);
+        world.setJournal(journal);
     }
 
     /**
-     * Handles random movement of characters within the game.
+     * Prepares the game to replay a journalled session, with the settings and random choices taken from the journal.
+     * The lines of input should be given to the game's parser in the same order as they appear in the journal.
      * <p>
-     * This method iterates over all characters in the character map and triggers random room movement for each character.
+     * The session is replayed under a {@link VirtualClock}, so it runs without waiting out any pauses.
+     *
+     * @param replay The journal to replay.
      */
-    private void randomCharacterMovement() {
-        // Iterate over all characters in the character map
-        for (Character character : characterMap.values()) {
-            // Trigger random room movement for the character
-            character.randomRoomMovement();
+    public void replay(Journal.Replay replay) {
+        if (replay.isSettingsPreset()) {
+            mapEnabled = replay.isMapEnabled();
+            applyRandomMovementValues(replay.isRandomCharacterMovement(), replay.getRandomMovementChance());
+            settingsPreset = true;
         }
+        world.setReplay(replay);
+        setClock(new VirtualClock());
     }
 
     /**
-     * Displays the map of the game world.
-     * <p>
-     * This method prints a visual representation of the game's map to the console.
-     * The map consists of various rooms connected by directions, representing the layout of the game world.
+     * Enables or disables the pauses between paced lines of output, such as dialog.
+     *
+     * @param pacingEnabled Whether paced output should pause.
      */
-    private void displayMap() {
-        String[] mapLines = {
-              "================       =================       ================",
-              "||            ||_______||             ||       ||            ||",
-              "||   Master   ||_______||    Study    ||       || Greenhouse ||",
-              "||  Bedroom   ||       ||             ||       ||            ||",
-              "================       =================       ================",
-              "       ||                      ||                     ||",
-              "       ||                      ||                     ||",
-              "       ||                      ||                     ||",
-              "       ||                      ||                     ||",
-              "=======||=======       ========||=======       =======||=======        ================",
-              "||            ||       ||             ||       ||            ||________||            ||",
-              "||   Hidden   ||       ||   Library   ||       ||  Kitchen   ||________||   Pantry   ||",
-              "||  Chamber   ||       ||             ||       ||            ||        ||            ||",
-              "================       =================       ================        ================",
-              "                               ||                     ||",
-              "                               ||                     ||",
-              "                               ||                     ||",
-              "                               ||                     ||",
-              "                       =================       ================",
-              "                       ||             ||_______||            ||",
-              "                       ||  Entrance   ||_______||   Dining   ||",
-              "                       ||    Hall     ||       ||    Room    ||",
-              "                       =================       ================"
-        };
-
-        // Print each line of the map to the console
-        for (String line : mapLines) {
-            System.out.println(line);
-        }
+    public void setPacingEnabled(boolean pacingEnabled) {
+        out.setPacingEnabled(pacingEnabled);
+    }
+
+    /**
+     * Returns whether the player has escaped the manor.
+     *
+     * @return true if the game has been won; false otherwise.
+     */
+    public boolean isGameWon() {
+        return gameWon;
+    }
+
+    /**
+     * Returns the parser which reads the player's commands.
+     *
+     * @return The game's parser.
+     */
+    public Parser getParser() {
+        return parser;
     }
 
     /**
@@ -1043,38 +1201,315 @@ public class Game {
      */
     private void setGameValues() {
         // Prompt the player to enable or disable the map
-        System.out.println("Would you like to enable the map? y/n");
+        out.println("Would you like to enable the map? y/n");
         mapEnabled = parser.getYesOrNo();
 
         // Prompt the player to enable or disable random character movement
-        System.out.println("Would you like to enable random character movement?");
-        System.out.println("(Characters will randomly move around the map once interacted with)");
-        randomCharacterMovement = parser.getYesOrNo();
+        out.println("Would you like to enable random character movement?");
+        out.println("(Characters will randomly move around the map once interacted with)");
 
         // If random character movement is disabled, set the movement values and save settings
-        if (!randomCharacterMovement) {
-            for (Character character : characterMap.values()) {
-                character.setRandomMovementValues(false, 100);
-            }
-            System.out.println("Game settings saved.");
+        if (!parser.getYesOrNo()) {
+            applyRandomMovementValues(null);
+            out.println("Game settings saved.");
             return;
         }
 
         // Prompt the player to select the difficulty level for random character movement
-        System.out.println("Which difficulty of random character movement?");
-        System.out.println("Options [Mode/Chance]: easy (1/30) | medium (1/15) | hard (1/5)");
-        Integer randomMovementChance = switch (parser.getDifficulty()) {
+        out.println("Which difficulty of random character movement?");
+        out.println("Options [Mode/Chance]: easy (1/30) | medium (1/15) | hard (1/5)");
+        applyRandomMovementValues(parser.getDifficulty());
+
+        out.println("Game settings saved.\n");
+    }
+
+    /**
+     * Sets the random movement values for each character based on the selected difficulty.
+     *
+     * @param difficulty The difficulty ('easy', 'medium' or 'hard'), or null to disable random character movement.
+     */
+    private void applyRandomMovementValues(String difficulty) {
+        if (difficulty == null) {
+            applyRandomMovementValues(false, 100);
+            return;
+        }
+
+        applyRandomMovementValues(true, switch (difficulty) {
             case "easy" -> 30;
             case "medium" -> 15;
             case "hard" -> 5;
             default -> 100;
-        };
+        });
+    }
+
+    /**
+     * Sets whether characters move randomly, and the chance of them moving, for each character.
+     *
+     * @param enabled Whether random character movement is enabled.
+     * @param chance The chance, one in this many, of a character moving after each command.
+     */
+    private void applyRandomMovementValues(boolean enabled, int chance) {
+        randomCharacterMovement = enabled;
+        randomMovementChance = chance;
 
-        // Set the random movement values for each character based on the selected difficulty
-        for (Character character : characterMap.values()) {
-            character.setRandomMovementValues(true, randomMovementChance);
+        for (Character character : world.getCharacterMap().values()) {
+            character.setRandomMovementValues(enabled, chance);
+        }
+        world.getCharacterScheduler().rescheduleAll();
+    }
+
+    /**
+     * Processes the save command, saving the game to [name].sav in the save directory, or quicksave.sav if no name is given.
+     *
+     * @param command The save command to be processed.
+     */
+    private void processSaveCommand(Command command) {
+        String name = getSaveName(command);
+        if (name == null) return;
+
+        try {
+            save(SaveFile.pathOf(saveDirectory, name));
+            out.println("Game saved as " + name + ".");
+        } catch (IOException e) {
+            out.println("The game could not be saved: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Processes the load command, loading the game from [name].sav in the save directory, or quicksave.sav if no name is given.
+     *
+     * @param command The load command to be processed.
+     */
+    private void processLoadCommand(Command command) {
+        String name = getSaveName(command);
+        if (name == null) return;
+
+        Path path = SaveFile.pathOf(saveDirectory, name);
+        if (!path.toFile().isFile()) {
+            out.println("There is no saved game called " + name + ".");
+            return;
         }
 
-        System.out.println("Game settings saved.\n");
+        try {
+            load(path);
+        } catch (IOException | BufferUnderflowException e) {
+            out.println("The game could not be loaded: " + (e.getMessage() != null ? e.getMessage() : "the save file is damaged"));
+            return;
+        }
+
+        out.println("Game loaded from " + name + ".");
+        currentRoom.displayRoomDetails();
+    }
+
+    /**
+     * Returns the name of the save a save or load command refers to.
+     *
+     * @param command The save or load command.
+     * @return The name of the save, or null if the name is not valid, in which case a message is displayed.
+     */
+    private String getSaveName(Command command) {
+        if (!command.hasSecondWord()) return "quicksave";
+
+        String name = command.getSecondWord();
+        if (!name.matches("[a-z0-9_]{1,64}")) {
+            out.println("Save names can only contain letters, digits and underscores.");
+            return null;
+        }
+        return name;
+    }
+
+    /**
+     * Saves the state of the game to a file, so that it can be loaded again later.
+     * <p>
+     * The snapshot holds the settings, the player's room, the rooms visited, the way back, the player's inventory,
+     * the items in each room, and each character's room, health, inventory and whether they have been interacted with.
+     *
+     * @param path The path of the save file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path path) throws IOException {
+        SaveFile saveFile = new SaveFile();
+        saveFile.putInt(world.getRoomCount());
+        saveFile.putInt(world.getItemCount());
+
+        // Settings and progress
+        saveFile.putBoolean(mapEnabled);
+        saveFile.putBoolean(randomCharacterMovement);
+        saveFile.putInt(randomMovementChance);
+        saveFile.putBoolean(riddleAnswered);
+
+        // The player
+        saveFile.putInt(currentRoom.getId());
+        saveFile.putInt(visitedRooms.cardinality());
+        for (int id = visitedRooms.nextSetBit(0); id >= 0; id = visitedRooms.nextSetBit(id + 1)) {
+            saveFile.putInt(id);
+        }
+        saveFile.putInt(backCommandStack.size());
+        for (Direction direction : backCommandStack) {
+            saveFile.putString(direction.toString());
+        }
+        saveFile.putCounts(inventory.getContents());
+
+        // The rooms' items, and the characters in each room in the order they arrived
+        for (int id = 0; id < world.getRoomCount(); id++) {
+            Room room = world.getRoom(id);
+            saveFile.putCounts(room.getRoomInventory().getInventory());
+            Set<Character> characters = room.getCharacters();
+            saveFile.putInt(characters.size());
+            for (Character character : characters) {
+                saveFile.putString(Utils.toSnakeCase(character.getName()));
+            }
+        }
+
+        // The characters
+        saveFile.putInt(world.getCharacterMap().size());
+        for (Character character : world.getCharacterMap().values()) {
+            saveFile.putString(Utils.toSnakeCase(character.getName()));
+            saveFile.putInt(character.getHealth());
+            saveFile.putBoolean(character.getInteractedWith());
+            saveFile.putCounts(character.getCharacterItems());
+        }
+
+        saveFile.write(path);
+    }
+
+    /**
+     * Loads the state of the game from a file written by {@link #save(Path)}.
+     * <p>
+     * The whole file is read and checked before any of the game is changed, so a damaged file leaves the game as it was.
+     *
+     * @param path The path of the save file.
+     * @throws IOException If the file cannot be read, or is not a save of this manor.
+     * @throws BufferUnderflowException If the file ends early.
+     */
+    public void load(Path path) throws IOException {
+        SaveFile saveFile = SaveFile.read(path);
+        if (saveFile.getInt() != world.getRoomCount() || saveFile.getInt() != world.getItemCount()) {
+            throw new IOException("the save is of a different manor");
+        }
+
+        boolean savedMapEnabled = saveFile.getBoolean();
+        boolean savedRandomCharacterMovement = saveFile.getBoolean();
+        int savedRandomMovementChance = saveFile.getInt();
+        boolean savedRiddleAnswered = saveFile.getBoolean();
+
+        Room savedRoom = readRoom(saveFile);
+        ArrayList<Room> savedVisitedRooms = new ArrayList<>();
+        for (int i = saveFile.getInt(); i > 0; i--) {
+            savedVisitedRooms.add(readRoom(saveFile));
+        }
+        ArrayList<Direction> savedBackCommands = new ArrayList<>();
+        for (int i = saveFile.getInt(); i > 0; i--) {
+            Direction direction = Direction.parse(saveFile.getString());
+            if (direction == null) throw new IOException("the save has an invalid direction");
+            savedBackCommands.add(direction);
+        }
+        ItemCounts savedInventory = readCounts(saveFile);
+
+        ItemCounts[] savedRoomItems = new ItemCounts[world.getRoomCount()];
+        ArrayList<ArrayList<Character>> savedRoomCharacters = new ArrayList<>();
+        HashMap<Character, Room> savedCharacterRooms = new HashMap<>(); // Characters who are not in any room have been killed
+        for (int id = 0; id < savedRoomItems.length; id++) {
+            savedRoomItems[id] = readCounts(saveFile);
+            ArrayList<Character> characters = new ArrayList<>();
+            for (int i = saveFile.getInt(); i > 0; i--) {
+                Character character = readCharacter(saveFile);
+                if (savedCharacterRooms.put(character, world.getRoom(id)) != null) throw new IOException("the save has a character in two rooms");
+                characters.add(character);
+            }
+            savedRoomCharacters.add(characters);
+        }
+
+        int characterCount = saveFile.getInt();
+        if (characterCount != world.getCharacterMap().size()) throw new IOException("the save is of a different manor");
+        Character[] savedCharacters = new Character[characterCount];
+        int[] savedHealth = new int[characterCount];
+        boolean[] savedInteractedWith = new boolean[characterCount];
+        ItemCounts[] savedCharacterItems = new ItemCounts[characterCount];
+        for (int i = 0; i < characterCount; i++) {
+            savedCharacters[i] = readCharacter(saveFile);
+            savedHealth[i] = saveFile.getInt();
+            savedInteractedWith[i] = saveFile.getBoolean();
+            savedCharacterItems[i] = readCounts(saveFile);
+        }
+        saveFile.end();
+
+        // The whole file has been read, so the game can now be changed
+        mapEnabled = savedMapEnabled;
+        applyRandomMovementValues(savedRandomCharacterMovement, savedRandomMovementChance);
+        riddleAnswered = savedRiddleAnswered;
+
+        currentRoom = savedRoom;
+        world.setPlayerRoom(currentRoom);
+        visitedRooms.clear();
+        for (Room room : savedVisitedRooms) {
+            visitedRooms.set(room.getId());
+        }
+        renderedMap = null;
+        backCommandStack.clear();
+        backCommandStack.addAll(savedBackCommands);
+
+        inventory.clear();
+        for (int id = savedInventory.next(0); id >= 0; id = savedInventory.next(id + 1)) {
+            inventory.restoreItem(savedInventory.getItem(id), savedInventory.getById(id));
+        }
+
+        for (int id = 0; id < savedRoomItems.length; id++) {
+            Room room = world.getRoom(id);
+            room.clearRoomInventory();
+            room.addAllItemsToRoomInventory(savedRoomItems[id]);
+        }
+
+        // Take every character out of their room before putting them back, so each room lists them in the saved order
+        for (Character character : savedCharacters) {
+            if (character.getCurrentRoom() != null) character.getCurrentRoom().removeCharacter(character);
+        }
+        for (int i = 0; i < characterCount; i++) {
+            Character character = savedCharacters[i];
+            character.restoreState(savedCharacterRooms.get(character), savedHealth[i], savedInteractedWith[i]);
+            character.clearCharacterInventory();
+            character.addAllItemsToCharacterInventory(savedCharacterItems[i]);
+        }
+        for (int id = 0; id < savedRoomItems.length; id++) {
+            for (Character character : savedRoomCharacters.get(id)) {
+                world.getRoom(id).addCharacter(character);
+            }
+        }
+        world.getCharacterScheduler().rescheduleAll();
+    }
+
+    /**
+     * Reads the id of a room from a save file.
+     *
+     * @param saveFile The save file.
+     * @return The room.
+     * @throws IOException If the id is not of a room in the world.
+     */
+    private Room readRoom(SaveFile saveFile) throws IOException {
+        int id = saveFile.getInt();
+        if (id < 0 || id >= world.getRoomCount()) throw new IOException("the save has an invalid room");
+        return world.getRoom(id);
+    }
+
+    /**
+     * Reads the name of a character from a save file.
+     *
+     * @param saveFile The save file.
+     * @return The character.
+     * @throws IOException If there is no character with the name in the world.
+     */
+    private Character readCharacter(SaveFile saveFile) throws IOException {
+        Character character = world.getCharacterMap().get(saveFile.getString());
+        if (character == null) throw new IOException("the save is of a different manor");
+        return character;
+    }
+
+    /**
+     * Reads the items and their quantities from a save file into a new set of counts.
+     */
+    private ItemCounts readCounts(SaveFile saveFile) throws IOException {
+        ItemCounts counts = new ItemCounts(world);
+        saveFile.getCounts(world, counts::add);
+        return counts;
     }
 }
\ No newline at end of file
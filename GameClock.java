@@ -0,0 +1,104 @@
+/**
+ * The GameClock interface is the source of time for a game session: it tells the time and runs delayed tasks,
+ * such as releasing paced dialog.
+ * <p>
+ * Sessions normally use the system clock, {@link #system()}, under which delays take real time. A session
+ * can instead be given a {@link VirtualClock}, under which time only moves on when the session waits for it,
+ * so that a session with paced output runs at full speed and always runs the same way.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public interface GameClock {
+    /**
+     * Returns the clock which follows real time, with delayed tasks run by the shared {@link TimerWheel}.
+     *
+     * @return The system clock.
+     */
+    static GameClock system() {
+        return TimerWheel.shared();
+    }
+
+    /**
+     * @return The current time in milliseconds, measured from an arbitrary starting point.
+     */
+    long millis();
+
+    /**
+     * Schedules a task to run after the given delay.
+     *
+     * @param task The task to run.
+     * @param delayMillis The delay in milliseconds.
+     * @return A handle which can be used to cancel the task.
+     */
+    Timeout schedule(Runnable task, long delayMillis);
+
+    /**
+     * Schedules a task to run repeatedly, each time the given period has passed since it last came due,
+     * until it is cancelled.
+     *
+     * @param task The task to run.
+     * @param periodMillis The period in milliseconds.
+     * @return A handle which can be used to stop the task.
+     */
+    default Timeout scheduleRepeating(Runnable task, long periodMillis) {
+        Repeating repeating = new Repeating(this, task, periodMillis);
+        repeating.scheduleNext();
+        return repeating;
+    }
+
+    /**
+     * Lets every task scheduled so far come due, if the clock is one which only moves on when it is asked to.
+     * Under real time this does nothing, as tasks come due by themselves.
+     */
+    void settle();
+
+    /**
+     * A task which has been scheduled on a clock.
+     */
+    interface Timeout {
+        /**
+         * Stops the task from running if it has not already run.
+         */
+        void cancel();
+    }
+
+    /**
+     * A task which schedules itself again each time it runs, until it is cancelled.
+     */
+    class Repeating implements Timeout, Runnable {
+        private final GameClock clock; // The clock the task is scheduled on
+        private final Runnable task; // The task to run each period
+        private final long periodMillis; // The period in milliseconds
+        private volatile boolean cancelled; // Flag for if the task should no longer run
+        private volatile Timeout next; // The next run of the task
+
+        Repeating(GameClock clock, Runnable task, long periodMillis) {
+            this.clock = clock;
+            this.task = task;
+            this.periodMillis = periodMillis;
+        }
+
+        /**
+         * Schedules the next run of the task.
+         */
+        void scheduleNext() {
+            next = clock.schedule(this, periodMillis);
+            if (cancelled) next.cancel();
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) return;
+            task.run();
+            scheduleNext();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Timeout scheduled = next;
+            if (scheduled != null) scheduled.cancel();
+        }
+    }
+}
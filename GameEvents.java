@@ -0,0 +1,257 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The GameEvents class holds the Java Flight Recorder events the game emits, so that a recording of a running
+ * server can tie a spike in latency to what the players were doing at the time.
+ * <p>
+ * Every event carries the id of the session it happened in, the command word being carried out and the room
+ * the player was in. Parsing and dispatching a command and playing a character's dialog are timed; moves
+ * between rooms, changes to inventories and characters' moves are recorded as they happen.
+ * <p>
+ * The events are created where they happen and only filled in if they are being recorded. When no recording
+ * is running, begin, end and commit do nothing, and the JIT compiler removes the unused event object along
+ * with them, so the events cost nothing. A recording can be started with
+ * {@code -XX:StartFlightRecording} or with {@code jcmd <pid> JFR.start}, and the events are found under the
+ * Mystic Manor category.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class GameEvents {
+    private static final String CATEGORY = "Mystic Manor"; // The category the events are listed under
+
+    private GameEvents() {
+    }
+
+    /**
+     * Fills in the fields common to every event from the world of a session.
+     *
+     * @param event The event.
+     * @param world The world of the session, or null if it is not known.
+     */
+    private static void fill(GameEvent event, World world) {
+        if (world == null) return;
+
+        event.sessionId = world.getSessionId();
+        event.verb = world.getCurrentVerb();
+        event.room = world.getPlayerRoom() == null ? null : world.getPlayerRoom().getName();
+    }
+
+    /**
+     * Returns a room's name, or null if there is no room.
+     */
+    private static String nameOf(Room room) {
+        return room == null ? null : room.getName();
+    }
+
+    /**
+     * Commits a timed event for a parsed command, if it is being recorded.
+     *
+     * @param event The event, which has been begun and ended around the parsing.
+     * @param world The world of the session, or null if it is not known.
+     * @param verb The command word typed, which may not be known.
+     */
+    public static void commitParse(CommandParse event, World world, String verb) {
+        if (!event.shouldCommit()) return;
+
+        fill(event, world);
+        event.verb = verb;
+        event.commit();
+    }
+
+    /**
+     * Commits a timed event for a dispatched command, if it is being recorded.
+     *
+     * @param event The event, which has been begun and ended around the command.
+     * @param world The world of the session.
+     * @param verb The command word.
+     * @param room The room the player was in when the command was given.
+     */
+    public static void commitDispatch(CommandDispatch event, World world, String verb, Room room) {
+        if (!event.shouldCommit()) return;
+
+        fill(event, world);
+        event.verb = verb;
+        event.room = nameOf(room);
+        event.commit();
+    }
+
+    /**
+     * Records the player moving from one room to another, if room transitions are being recorded.
+     *
+     * @param world The world of the session.
+     * @param from The room the player left.
+     * @param to The room the player entered.
+     */
+    public static void roomTransition(World world, Room from, Room to) {
+        RoomTransition event = new RoomTransition();
+        if (!event.isEnabled()) return;
+
+        fill(event, world);
+        event.room = nameOf(to);
+        event.fromRoom = nameOf(from);
+        event.commit();
+    }
+
+    /**
+     * Records a change to the items in an inventory, if inventory changes are being recorded.
+     *
+     * @param world The world of the session.
+     * @param inventory The owner of the inventory: "player", or the name of a room or character.
+     * @param item The item, or null if every item changed at once, such as when the inventory was cleared.
+     * @param change How many of the item were added, or if negative, removed, or 0 if every item changed.
+     */
+    public static void inventoryChange(World world, String inventory, Item item, int change) {
+        InventoryChange event = new InventoryChange();
+        if (!event.isEnabled()) return;
+
+        fill(event, world);
+        event.inventory = inventory;
+        event.item = item == null ? null : item.getName();
+        event.change = change;
+        event.commit();
+    }
+
+    /**
+     * Records a character moving from one room to another, if character moves are being recorded.
+     *
+     * @param world The world of the session.
+     * @param character The name of the character.
+     * @param from The room the character left.
+     * @param to The room the character entered.
+     */
+    public static void characterMove(World world, String character, Room from, Room to) {
+        CharacterMove event = new CharacterMove();
+        if (!event.isEnabled()) return;
+
+        fill(event, world);
+        event.character = character;
+        event.fromRoom = nameOf(from);
+        event.toRoom = nameOf(to);
+        event.commit();
+    }
+
+    /**
+     * Commits a timed event for a character's dialog being played, if it is being recorded.
+     *
+     * @param event The event, which has been begun and ended around the dialog.
+     * @param world The world of the session.
+     * @param character The name of the character.
+     * @param lines The number of lines played.
+     * @param pausedSeconds The total pause between the lines, in seconds.
+     */
+    public static void commitDialog(DialogPlayed event, World world, String character, int lines, int pausedSeconds) {
+        if (!event.shouldCommit()) return;
+
+        fill(event, world);
+        event.character = character;
+        event.lines = lines;
+        event.pausedSeconds = pausedSeconds;
+        event.commit();
+    }
+
+    /**
+     * The fields every event of the game carries.
+     */
+    @Category(CATEGORY)
+    abstract static class GameEvent extends Event {
+        @Label("Session")
+        @Description("The id of the game session")
+        long sessionId;
+
+        @Label("Verb")
+        @Description("The command word being carried out")
+        String verb;
+
+        @Label("Room")
+        @Description("The room the player is in")
+        String room;
+    }
+
+    /**
+     * The parsing of a line of input into a command, after the line has been read.
+     */
+    @Name("manor.CommandParse")
+    @Label("Command Parse")
+    @Description("A line of input split into words and resolved to a command")
+    public static class CommandParse extends GameEvent {
+    }
+
+    /**
+     * A command being carried out, including waiting for the world's lock.
+     */
+    @Name("manor.CommandDispatch")
+    @Label("Command Dispatch")
+    @Description("A command carried out by its handler")
+    public static class CommandDispatch extends GameEvent {
+    }
+
+    /**
+     * The player moving between rooms, one event for each room passed through.
+     */
+    @Name("manor.RoomTransition")
+    @Label("Room Transition")
+    @Description("The player moving from one room to another")
+    public static class RoomTransition extends GameEvent {
+        @Label("From Room")
+        String fromRoom;
+    }
+
+    /**
+     * Items being added to or removed from the inventory of the player, a room or a character.
+     */
+    @Name("manor.InventoryChange")
+    @Label("Inventory Change")
+    @Description("Items added to or removed from an inventory")
+    public static class InventoryChange extends GameEvent {
+        @Label("Inventory")
+        @Description("The owner of the inventory: player, or the name of a room or character")
+        String inventory;
+
+        @Label("Item")
+        String item;
+
+        @Label("Change")
+        @Description("How many of the item were added, or if negative, removed")
+        int change;
+    }
+
+    /**
+     * A character moving between rooms, whether after a command or on a tick of the simulation.
+     */
+    @Name("manor.CharacterMove")
+    @Label("Character Move")
+    @Description("A character moving from one room to another")
+    public static class CharacterMove extends GameEvent {
+        @Label("Character")
+        String character;
+
+        @Label("From Room")
+        String fromRoom;
+
+        @Label("To Room")
+        String toRoom;
+    }
+
+    /**
+     * A character's dialog being queued for paced output. The lines are written out afterwards, over the pauses.
+     */
+    @Name("manor.DialogPlayed")
+    @Label("Dialog Played")
+    @Description("A character's dialog queued for paced output")
+    public static class DialogPlayed extends GameEvent {
+        @Label("Character")
+        String character;
+
+        @Label("Lines")
+        int lines;
+
+        @Label("Paused Seconds")
+        @Description("The total pause between the lines")
+        int pausedSeconds;
+    }
+}
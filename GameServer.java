@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+
+/**
+ * The GameServer class hosts the game over TCP so that players can connect with a telnet-style client.
+ * <p>
+ * Every connection gets its own Game, with its own World, running on its own virtual thread.
+ * The parser reads commands from the connection and all output is written back to it. As virtual
+ * threads are cheap to park, many mostly idle players can share a few cores in a single JVM.
+ * <p>
+ * If journalling is enabled, each session is recorded in its own {@link Journal} in the journals directory,
+ * so it can be replayed after a crash or to reproduce a bug.
+ * <p>
+ * Players cannot yet be told apart between connections, so each session keeps its saves in a directory of
+ * its own, and one player's save and load commands never touch another's games.
+ * <p>
+ * The {@link CommandStats} of every session are published through JMX while the server runs, and if admin
+ * commands are enabled, players can also read them with the stats command.
+ * <p>
+ * Virtual threads require Java 21 or later.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class GameServer {
+    public static final int DEFAULT_PORT = 4000; // The port used when none is given
+
+    private int port; // The port the server listens on
+    private boolean journalled; // Whether each session is recorded in a journal
+    private long tickMillis; // The time between character simulation ticks, or 0 to move characters after commands
+    private boolean adminCommands; // Whether players are given the admin commands
+    private AtomicLong sessionCount = new AtomicLong(); // The number of sessions started, used to name their journals and save directories
+
+    /**
+     * Constructs a server which will listen on the specified port.
+     *
+     * @param port The port to listen on.
+     */
+    public GameServer(int port) {
+        this(port, false);
+    }
+
+    /**
+     * Constructs a server which will listen on the specified port.
+     *
+     * @param port The port to listen on.
+     * @param journalled Whether each session is recorded in a journal.
+     */
+    public GameServer(int port, boolean journalled) {
+        this(port, journalled, 0);
+    }
+
+    /**
+     * Constructs a server which will listen on the specified port.
+     *
+     * @param port The port to listen on.
+     * @param journalled Whether each session is recorded in a journal.
+     * @param tickMillis The time between ticks of each session's {@link CharacterSimulation}, or 0 to move the
+     *                   characters after the player's commands instead.
+     */
+    public GameServer(int port, boolean journalled, long tickMillis) {
+        this(port, journalled, tickMillis, false);
+    }
+
+    /**
+     * Constructs a server which will listen on the specified port.
+     *
+     * @param port The port to listen on.
+     * @param journalled Whether each session is recorded in a journal.
+     * @param tickMillis The time between ticks of each session's {@link CharacterSimulation}, or 0 to move the
+     *                   characters after the player's commands instead. Ticks are not journalled, so this must be
+     *                   0 if the sessions are.
+     * @param adminCommands Whether players are given the admin commands, such as stats.
+     * @throws IllegalArgumentException If the sessions are both journalled and ticked.
+     */
+    public GameServer(int port, boolean journalled, long tickMillis, boolean adminCommands) {
+        if (journalled && tickMillis > 0) {
+            throw new IllegalArgumentException("Ticked sessions cannot be journalled, as the ticks are not replayed");
+        }
+
+        this.port = port;
+        this.journalled = journalled;
+        this.tickMillis = tickMillis;
+        this.adminCommands = adminCommands;
+    }
+
+    /**
+     * Accepts connections until the server is stopped, starting a new game session for each one.
+     *
+     * @throws IOException If the server socket cannot be opened.
+     */
+    public void start() throws IOException {
+        try {
+            CommandStats.registerMBean();
+        } catch (JMException e) {
+            System.out.println("Command statistics are not available through JMX: " + e.getMessage());
+        }
+
+        try (ServerSocket serverSocket = new ServerSocket(port);
+             ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+            System.out.println("Mystic Manor server listening on port " + port);
+
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                sessions.submit(() -> runSession(socket));
+            }
+        }
+    }
+
+    /**
+     * Plays a single game over the given connection and closes the connection when the game ends.
+     * <p>
+     * If the player disconnects part way through, the parser runs out of input and the session is ended quietly.
+     *
+     * @param socket The connection to the player.
+     */
+    private void runSession(Socket socket) {
+        long session = sessionCount.incrementAndGet();
+        try (socket; Journal journal = journalled ? new Journal(Journal.pathForSession(session)) : null) {
+            Game game = new Game(socket.getInputStream(), new StreamSink(socket.getOutputStream()));
+            game.setSaveDirectory(SaveFile.directoryForSession(session));
+            if (journal != null) game.setJournal(journal);
+            if (adminCommands) game.enableAdminCommands();
+            if (tickMillis > 0) game.startCharacterSimulation(tickMillis);
+            game.play();
+        } catch (NoSuchElementException e) {
+            // The player closed the connection
+        } catch (IOException e) {
+            System.out.println("Session ended with an error: " + e.getMessage());
+        }
+    }
+}
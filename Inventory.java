@@ -1,6 +1,4 @@
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.io.PrintStream;
 
 /**
  * The Inventory class manages the collection of items that a player can carry.
@@ -9,17 +7,23 @@ import java.util.stream.Collectors;
  * and making sure that the maximum weight is not exceeded. It also
  * provides methods to display the inventory contents and their total weight.
  * <p>
- * The inventory is stored as a HashMap with items as keys and their quantities
- * as values.
+ * The inventory is stored as {@link ItemCounts}, an array of quantities indexed
+ * by item id, and items are listed in id order. The total weight is updated as items are added and removed, so it
+ * is always accurate without going through the items, and the text shown by the
+ * display methods is kept until the inventory next changes.
  *
  * @author Mahdi Razzaque
  * @version 28.11.2024
  */
 
 public class Inventory {
-    private HashMap<Item, Integer> inventory = new HashMap<>(); // Stores items and their quantities
-    private Integer weight; // The current total weight of items in the inventory
+    private ItemCounts inventory; // Stores the quantity of each item
+    private int weight; // The current total weight of items in the inventory, kept up to date on every change
     private Integer maxWeight; // The maximum weight capacity of the inventory
+    private World world; // The world the inventory belongs to, used to look up locked doors and tag events
+    private PrintStream out; // The stream the inventory is displayed on
+    private String renderedInventory; // The text shown by displayInventory, or null if the inventory has changed since
+    private String renderedSelection; // The text shown by displayInventorySelection, or null if the inventory has changed since
 
     /**
      * Constructs an Inventory object with a specified maximum weight capacity.
@@ -27,11 +31,15 @@ public class Inventory {
      * Initialises the inventory with a given maximum weight and sets the current
      * weight to zero.
      *
+     * @param world The world the inventory belongs to.
      * @param maxWeight The maximum weight capacity of the inventory.
      */
-    public Inventory(Integer maxWeight) {
+    public Inventory(World world, Integer maxWeight) {
         weight = 0;
         this.maxWeight = maxWeight;
+        this.world = world;
+        inventory = new ItemCounts(world);
+        out = world.getOut();
     }
 
     /**
@@ -64,23 +72,18 @@ public class Inventory {
      * @param number The number of items to add.
      */
     public void addItem(Item item, Integer number) {
-        if (((calculateInventoryWeight() + item.getWeight() * number) > maxWeight)) { // Checks to see if the total weight after the item addition exceeds the max weight
-            System.out.println("\n**Inventory - Items not added**");
-            System.out.println("You do not have enough inventory space for this");
+        if (((weight + item.getWeight() * number) > maxWeight)) { // Checks to see if the total weight after the item addition exceeds the max weight
+            out.println("\n**Inventory - Items not added**");
+            out.println("You do not have enough inventory space for this");
             return;
         }
 
-        if (!inventory.containsKey(item)) { //Checks to see if the inventory already includes an item. If not, it creates the key and sets the value.
-            inventory.put(item, number);
-            System.out.println("\n**Inventory - Items added**");
-            System.out.println(String.format("Added %d %s to your inventory", number, item.getName() + (number > 1 ? "s" : "")));
-            displayInventoryWeight();
-            return;
-        }
+        weight += item.getWeight() * number;
+        changed(item, number);
 
-        inventory.put(item, inventory.get(item) + number); // Adds the quantity provided to the existing count
-        System.out.println("\n**Inventory - Items added**");
-        System.out.println(String.format("Added %d %s to your inventory", number, item.getName() + (number > 1 ? "s" : "")));
+        inventory.add(item, number); // Adds the quantity provided to any existing count
+        out.println("\n**Inventory - Items added**");
+        out.println(String.format("Added %d %s to your inventory", number, item.getName() + (number > 1 ? "s" : "")));
         displayInventoryWeight();
     }
 
@@ -95,26 +98,27 @@ public class Inventory {
      * @param number The number of items to remove.
      */
     public void removeItem(Item item, Integer number) {
-        if (!inventory.containsKey(item)) { // Check if the item is present in the inventory
-            System.out.println("\n**Inventory - Items not removed **");
-            System.out.println("You do not have any " + item.getName() + "(s).");
+        int numberInInventory = inventory.get(item); // Get the current number of the item in the inventory
+        if (numberInInventory == 0) { // Check if the item is present in the inventory
+            out.println("\n**Inventory - Items not removed **");
+            out.println("You do not have any " + item.getName() + "(s).");
             return;
         }
 
-        int numberInInventory = inventory.get(item); // Get the current number of the item in the inventory
         if (numberInInventory < number) { // Check if the inventory has enough items to remove
-            System.out.println("\n**Inventory - Items not removed**");
-            System.out.println("You cannot remove more items than you have.");
+            out.println("\n**Inventory - Items not removed**");
+            out.println("You cannot remove more items than you have.");
             return;
         }
 
-        System.out.println("\n**Inventory - Items removed***");
-        inventory.put(item, inventory.get(item) - number); // Update the quantity of the item in the inventory
+        out.println("\n**Inventory - Items removed***");
+        inventory.remove(item, number); // Update the quantity of the item in the inventory
+        weight -= item.getWeight() * number;
+        changed(item, -number);
         numberInInventory = inventory.get(item); // Update the number of the item in the inventory
 
-        System.out.printf("You have %d %s left%n", numberInInventory, item.getName() + (numberInInventory > 1 ? "s" : "")); // Display the remaining number of the item
+        out.printf("You have %d %s left%n", numberInInventory, item.getName() + (numberInInventory > 1 ? "s" : "")); // Display the remaining number of the item
         displayInventoryWeight(); // Display the updated inventory weight
-        Utils.removeZeroQuantityItems(inventory); // Remove items with zero quantity from the inventory
     }
 
     /**
@@ -125,18 +129,23 @@ public class Inventory {
      * If the inventory is empty, it prints a message indicating that.
      */
     public void displayInventory() {
-        System.out.println("\n**Inventory**");
-        if (inventory.isEmpty()) {
-            System.out.println("Your inventory is empty.");
-            return;
-        }
-
-        String inventoryList = inventory.keySet().stream()
-                .map(item -> Utils.toTitleCase(item.getName()) + ": " + inventory.get(item) + " [Weight: " + (inventory.get(item) * item.getWeight()) + "]")
-                .collect(Collectors.joining("\n"));
+        if (renderedInventory == null) {
+            String newLine = System.lineSeparator();
+            if (inventory.isEmpty()) {
+                renderedInventory = newLine + "**Inventory**" + newLine + "Your inventory is empty." + newLine;
+            } else {
+                StringBuilder inventoryList = new StringBuilder(newLine).append("**Inventory**").append(newLine);
+                for (int id = inventory.next(0); id >= 0; id = inventory.next(id + 1)) {
+                    Item item = inventory.getItem(id);
+                    int number = inventory.getById(id);
+                    inventoryList.append(Utils.toTitleCase(item.getName())).append(": ").append(number)
+                            .append(" [Weight: ").append(number * item.getWeight()).append("]").append(newLine);
+                }
 
-        System.out.println(inventoryList);
-        displayInventoryWeight();
+                renderedInventory = inventoryList + getWeightString() + newLine;
+            }
+        }
+        out.print(renderedInventory);
     }
 
     /**
@@ -146,48 +155,78 @@ public class Inventory {
      * If the inventory is empty, it prints a message indicating that.
      */
     public void displayInventorySelection() {
-        if (inventory.isEmpty()) {
-            System.out.println("Items: None");
-            return;
+        if (renderedSelection == null) {
+            if (inventory.isEmpty()) {
+                renderedSelection = "Items: None";
+            } else {
+                StringBuilder inventoryList = new StringBuilder("Items: ");
+                for (int id = inventory.next(0); id >= 0; id = inventory.next(id + 1)) {
+                    if (inventoryList.length() > "Items: ".length()) inventoryList.append(", ");
+                    inventoryList.append(inventory.getItem(id).getName().toLowerCase().replaceAll(" ", "_"));
+                }
+                renderedSelection = inventoryList.toString();
+            }
         }
+        out.println(renderedSelection);
+    }
 
-        String inventoryList = inventory.keySet().stream()
-                .map(item -> item.getName().toLowerCase().replaceAll(" ", "_"))
-                .collect(Collectors.joining(", "));
+    /**
+     * Returns the quantities of the items in the inventory.
+     *
+     * @return The items in the inventory.
+     */
+    public ItemCounts getContents() {
+        return inventory;
+    }
 
-        System.out.println("Items: " + inventoryList);
+    /**
+     * Removes every item from the inventory without displaying anything, before it is restored from a save file.
+     */
+    public void clear() {
+        inventory.clear();
+        weight = 0;
+        changed(null, 0);
     }
 
     /**
-     * Calculates the total weight of the items in the inventory.
-     * <p>
-     * This method iterates through the items in the inventory and calculates the
-     * total weight based on the quantity and weight of each item. If the inventory
-     * is empty, the total weight is set to zero.
+     * Puts items into the inventory without displaying anything or checking the weight, when it is restored from a save file.
      *
-     * @return The total weight of the items in the inventory.
+     * @param item The item to restore.
+     * @param number The number of the item.
      */
-    public Integer calculateInventoryWeight() {
-        if (inventory.isEmpty()) { // Check if the inventory is empty
-            weight = 0;
-        } else {
-            weight = 0; // Reset weight to zero before calculating
-            for (Item item : inventory.keySet()) { // Iterate through each item in the inventory
-                weight += item.getWeight() * inventory.get(item); // Add the weight of the item multiplied by its quantity
-            }
-        }
-        return weight;
+    public void restoreItem(Item item, int number) {
+        inventory.add(item, number);
+        weight += item.getWeight() * number;
+        changed(item, number);
+    }
+
+    /**
+     * Forgets the rendered inventory text after the inventory has changed, and records the change for the flight recorder.
+     *
+     * @param item The item which changed, or null if every item did.
+     * @param change How many of the item were added, or if negative, removed.
+     */
+    private void changed(Item item, int change) {
+        renderedInventory = null;
+        renderedSelection = null;
+        GameEvents.inventoryChange(world, "player", item, change);
     }
 
     /**
      * Displays the total weight of the items in the inventory.
      * <p>
-     * This method calculates the total weight of the items in the inventory and
-     * prints it along with the maximum weight capacity.
+     * This method prints the total weight of the items in the inventory, which is kept up to date
+     * as items are added and removed, along with the maximum weight capacity.
      */
     public void displayInventoryWeight() {
-        calculateInventoryWeight(); // Calculate the total weight of the items in the inventory
-        System.out.println(String.format("Total weight: %d/%d", weight, maxWeight)); // Print the total weight and the maximum weight
+        out.println(getWeightString()); // Print the total weight and the maximum weight
+    }
+
+    /**
+     * @return The total weight and the maximum weight, for example "Total weight: 20/50".
+     */
+    private String getWeightString() {
+        return "Total weight: " + weight + "/" + maxWeight;
     }
 
     /**
@@ -198,7 +237,7 @@ public class Inventory {
      * @return The quantity of the item in the inventory.
      */
     public Integer numberOfItem(Item item) {
-        return inventory.getOrDefault(item, 0);
+        return inventory.get(item);
     }
 
     /**
@@ -214,21 +253,19 @@ public class Inventory {
      */
     public void dropItem(Room currentRoom, Item item, int quantity) {
         // Prevent dropping keys in specific rooms to avoid the player being locked out of rooms
-        for(lockedDoor door : Game.lockedDoorObjects) {
-            if (Game.allLockedRooms.contains(currentRoom) && door.getKey().equals(item)) {
-                System.out.println("If you drop the key here, the door will lock behind you, sealing its secrets forever. I can't let you do that.");
-                return;
-            }
+        if (world.isLockedRoom(currentRoom) && world.isKey(item)) {
+            out.println("If you drop the key here, the door will lock behind you, sealing its secrets forever. I can't let you do that.");
+            return;
         }
 
         if(numberOfItem(item) < quantity) { // Check if the player has enough of the item to drop
-            System.out.println("You do not have enough of that item to drop.");
+            out.println("You do not have enough of that item to drop.");
             return;
         }
 
         currentRoom.addItemToRoomInventory(item, quantity); // Add the item to the room's inventory
         removeItem(item, quantity); // Remove the item from the player's inventory
-        System.out.println("You have dropped " + quantity + " " + item.getName() + (quantity > 1 ? "s" : "")); // Display confirmation message
+        out.println("You have dropped " + quantity + " " + item.getName() + (quantity > 1 ? "s" : "")); // Display confirmation message
     }
 
     /**
@@ -243,19 +280,19 @@ public class Inventory {
      * @param quantity The quantity of the item to pick up.
      */
     public void pickupItem(Room currentRoom, Item item, int quantity) {
-        if (((calculateInventoryWeight() + item.getWeight() * quantity) > maxWeight)) { // Check if adding the item exceeds the max weight
-            System.out.println("\n**Inventory - Items not added**");
-            System.out.println("You do not have enough inventory space for this");
+        if (((weight + item.getWeight() * quantity) > maxWeight)) { // Check if adding the item exceeds the max weight
+            out.println("\n**Inventory - Items not added**");
+            out.println("You do not have enough inventory space for this");
             return;
         }
 
         if(currentRoom.numberOfItemInRoomInventory(item) < quantity) { // Check if the room has enough of the item to pick up
-            System.out.println("There are not enough of that item here to pick up.");
+            out.println("There are not enough of that item here to pick up.");
             return;
         }
 
         currentRoom.removeItemFromRoomInventory(item, quantity); // Remove the item from the room's inventory
         addItem(item, quantity); // Add the item to the player's inventory
-        System.out.println("You have picked up " + quantity + " " + item.getName() + (quantity > 1 ? "s" : "")); // Display confirmation message
+        out.println("You have picked up " + quantity + " " + item.getName() + (quantity > 1 ? "s" : "")); // Display confirmation message
     }
 }
@@ -1,5 +1,3 @@
-import java.util.HashMap;
-
 /**
  * This class is used to create item objects.
  * Items are objects the characters can find and use throughout the game.
@@ -11,19 +9,22 @@ import java.util.HashMap;
 public class Item  {
     private String itemName; // Holds the name of the item
     private Integer weight;  // Holds the weight of the given item.
+    private int id; // The dense id the world gave the item, used to index inventories
 
     /**
      * Constructor for item objects.
      * <p>
-     * Initialises an item with a specified name and weight.
+     * Initialises an item with a specified name and weight and registers it with the world,
+     * which gives it its id.
      *
+     * @param world The world the item belongs to.
      * @param name Name of the item.
      * @param weight Weight of the item.
      */
-    public Item(String name, Integer weight) {
+    public Item(World world, String name, Integer weight) {
         itemName = name;
         this.weight = weight;
-        Game.itemMap.put(Utils.toSnakeCase(name), this);
+        id = world.addItem(this);
     }
 
     /**
@@ -43,4 +44,13 @@ public class Item  {
     public Integer getWeight() {
         return weight;
     }
+
+    /**
+     * Returns the id of the item, which is unique within its world.
+     *
+     * @return The id of the item.
+     */
+    public int getId() {
+        return id;
+    }
 }
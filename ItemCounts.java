@@ -0,0 +1,142 @@
+import java.util.Arrays;
+
+/**
+ * The ItemCounts class holds how many of each item an inventory contains.
+ * <p>
+ * Every item is given a dense id by its world when it is created (see {@link World#addItem(Item)}), so the
+ * counts are kept in a plain int array indexed by item id rather than a map of boxed quantities. An item
+ * with a count of zero is simply not in the inventory, so nothing has to be removed when the last one goes.
+ * The array only grows to cover the highest id actually held, and an empty inventory has no array of its own.
+ * <p>
+ * Items are listed in id order, which is the order they were created in.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class ItemCounts {
+    private static final int[] NONE = new int[0]; // The counts of every inventory which has never held an item
+
+    private World world; // The world the item ids belong to
+    private int[] counts = NONE; // The number of each item held, by item id
+    private int distinctItems; // The number of different items held
+
+    /**
+     * Constructs an empty set of counts for items of the given world.
+     *
+     * @param world The world the item ids belong to.
+     */
+    public ItemCounts(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Returns how many of an item are held.
+     *
+     * @param item The item.
+     * @return The number held, or 0 if there are none.
+     */
+    public int get(Item item) {
+        int id = item.getId();
+        return id < counts.length ? counts[id] : 0;
+    }
+
+    /**
+     * Adds a number of an item.
+     *
+     * @param item The item.
+     * @param number The number to add.
+     */
+    public void add(Item item, int number) {
+        int id = item.getId();
+        if (id >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(id + 1, world.getItemCount()));
+        }
+        if (counts[id] == 0 && number > 0) distinctItems++;
+        counts[id] += number;
+    }
+
+    /**
+     * Removes a number of an item. If there are fewer than that number, all of them are removed.
+     *
+     * @param item The item.
+     * @param number The number to remove.
+     */
+    public void remove(Item item, int number) {
+        int id = item.getId();
+        if (id >= counts.length || counts[id] == 0) return;
+
+        counts[id] = Math.max(counts[id] - number, 0);
+        if (counts[id] == 0) distinctItems--;
+    }
+
+    /**
+     * Adds all the items held in another set of counts.
+     *
+     * @param other The counts to add.
+     */
+    public void addAll(ItemCounts other) {
+        for (int id = 0; id < other.counts.length; id++) {
+            if (other.counts[id] > 0) {
+                add(world.getItem(id), other.counts[id]);
+            }
+        }
+    }
+
+    /**
+     * Removes all the items.
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        distinctItems = 0;
+    }
+
+    /**
+     * @return true if no items are held.
+     */
+    public boolean isEmpty() {
+        return distinctItems == 0;
+    }
+
+    /**
+     * @return The number of different items held.
+     */
+    public int size() {
+        return distinctItems;
+    }
+
+    /**
+     * Returns the id of the next item held, so the items can be listed without creating a collection:
+     * <pre>
+     *     for (int id = counts.next(0); id >= 0; id = counts.next(id + 1)) { ... }
+     * </pre>
+     *
+     * @param fromId The id to start looking from.
+     * @return The lowest id of an item held which is at least fromId, or -1 if there is none.
+     */
+    public int next(int fromId) {
+        for (int id = fromId; id < counts.length; id++) {
+            if (counts[id] > 0) return id;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns how many of the item with the given id are held.
+     *
+     * @param id The id of the item.
+     * @return The number held, or 0 if there are none.
+     */
+    public int getById(int id) {
+        return id < counts.length ? counts[id] : 0;
+    }
+
+    /**
+     * Returns the item with the given id.
+     *
+     * @param id The id of the item.
+     * @return The item.
+     */
+    public Item getItem(int id) {
+        return world.getItem(id);
+    }
+}
@@ -0,0 +1,415 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The Journal class records a game session as it is played, so that it can be played again exactly.
+ * <p>
+ * Every line of input the game acts on is appended to the journal, along with the preset settings and the
+ * outcome of every random choice, such as a character wandering off or the magic mirror picking a room.
+ * Replaying the lines against a fresh world, with the random choices taken from the journal rather than
+ * drawn again, rebuilds the session as it was, so a crashed session can be recovered and a reported bug
+ * can be reproduced.
+ * <p>
+ * Records are gathered in memory and committed in groups: they are written and forced to disk once
+ * {@link #DEFAULT_BATCH_SIZE} commands have been gathered, or {@link #DEFAULT_COMMIT_DELAY_MILLIS} after
+ * the first command of the group, whichever comes first. A crash can lose at most the commands of the last
+ * group, and a record cut short by a crash is ignored when the journal is read.
+ * <p>
+ * The records are guarded by a ReentrantLock rather than the journal's monitor, and a group is taken out
+ * under it but written and forced to disk after it is released. A virtual thread waiting on the disk inside
+ * a monitor would stay pinned to its carrier thread, and the game would wait on every commit.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class Journal implements Closeable {
+    public static final int MAGIC = 0x4D4D4A4E; // "MMJN", the first four bytes of every journal
+    public static final int VERSION = 3; // The version of the format written, increased whenever the layout changes
+    public static final String JOURNAL_DIRECTORY = "journals"; // The directory server sessions are journalled in
+    public static final int DEFAULT_BATCH_SIZE = 32; // The most commands gathered before they are committed
+    public static final long DEFAULT_COMMIT_DELAY_MILLIS = 1000; // The longest a command waits before it is committed
+
+    private static final byte SETTINGS = 'S', LINE = 'L', RANDOM = 'R'; // The tags which start each record
+
+    private final ReentrantLock lock = new ReentrantLock(); // Guards the pending records and the commit state
+    private final ReentrantLock writeLock = new ReentrantLock(); // Held while a group is taken and written, which keeps the groups in order
+    private FileChannel channel; // The journal file, which replaced any journal already at its path
+    private ByteBuffer pending = ByteBuffer.allocate(4096); // Records gathered since the last commit
+    private int pendingCommands; // The number of commands gathered since the last commit
+    private int commandsEnd; // The end of the records of the last whole command in the pending buffer
+    private int batchSize; // The number of commands which triggers a commit
+    private long commitDelayMillis; // How long after the first command of a group it is committed
+    private GameClock.Timeout scheduledCommit; // The commit scheduled for the current group, if there is one
+    private IOException failure; // The error from a scheduled commit, reported by the next call
+
+    /**
+     * Opens a new journal with the default group commit settings, replacing the file if it already exists.
+     *
+     * @param path The path of the journal file. Its directory is created if it does not exist.
+     * @throws IOException If the file cannot be opened.
+     */
+    public Journal(Path path) throws IOException {
+        this(path, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_DELAY_MILLIS);
+    }
+
+    /**
+     * Opens a new journal, replacing the file if it already exists, as a journal holds a single session.
+     *
+     * @param path The path of the journal file. Its directory is created if it does not exist.
+     * @param batchSize The most commands gathered before they are committed.
+     * @param commitDelayMillis The longest a command waits before it is committed.
+     * @throws IOException If the file cannot be opened.
+     */
+    public Journal(Path path, int batchSize, long commitDelayMillis) throws IOException {
+        this.batchSize = batchSize;
+        this.commitDelayMillis = commitDelayMillis;
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        pending.putInt(MAGIC);
+        pending.putInt(VERSION);
+        commandsEnd = pending.position();
+    }
+
+    /**
+     * Returns the path of a new journal file for a server session.
+     *
+     * @param session The number of the session.
+     * @return The path of the journal file.
+     */
+    public static Path pathForSession(long session) {
+        return Path.of(JOURNAL_DIRECTORY, "session-" + System.currentTimeMillis() + "-" + session + ".journal");
+    }
+
+    /**
+     * Records the settings which were given up front rather than asked for.
+     *
+     * @param mapEnabled Whether the map is enabled.
+     * @param randomCharacterMovement Whether random character movement is enabled.
+     * @param randomMovementChance The chance, one in this many, of a character moving after each command.
+     */
+    public void recordSettings(boolean mapEnabled, boolean randomCharacterMovement, int randomMovementChance) {
+        lock.lock();
+        try {
+            ensureCapacity(7);
+            pending.put(SETTINGS);
+            pending.put((byte) (mapEnabled ? 1 : 0));
+            pending.put((byte) (randomCharacterMovement ? 1 : 0));
+            pending.putInt(randomMovementChance);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a line of input which the game has acted on.
+     *
+     * @param line The line.
+     */
+    public void recordLine(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 0xFFFF);
+        lock.lock();
+        try {
+            ensureCapacity(3 + length);
+            pending.put(LINE);
+            pending.putShort((short) length);
+            pending.put(bytes, 0, length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the outcome of a random choice.
+     *
+     * @param value The number chosen.
+     */
+    public void recordRandom(int value) {
+        lock.lock();
+        try {
+            ensureCapacity(5);
+            pending.put(RANDOM);
+            pending.putInt(value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the end of a command. The group of commands is committed if it is full, and otherwise
+     * a commit is scheduled for when the first command of the group has waited long enough.
+     *
+     * @throws UncheckedIOException If the journal cannot be written.
+     */
+    public void endCommand() {
+        boolean full;
+        lock.lock();
+        try {
+            commandsEnd = pending.position();
+            pendingCommands++;
+            full = pendingCommands >= batchSize;
+            if (!full && scheduledCommit == null) {
+                scheduledCommit = TimerWheel.shared().schedule(this::scheduledCommit, commitDelayMillis);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full) commit();
+    }
+
+    /**
+     * Writes the records of every whole command gathered so far and forces them to disk. The records of a
+     * command still being carried out are kept back, so a command is never committed without its random choices.
+     *
+     * @throws UncheckedIOException If the journal cannot be written.
+     */
+    public void commit() {
+        writeLock.lock();
+        try {
+            ByteBuffer commands = takeCommands();
+            if (commands == null) return;
+
+            try {
+                while (commands.hasRemaining()) {
+                    channel.write(commands);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                } finally {
+                    lock.unlock();
+                }
+                throw new UncheckedIOException("Could not write the journal", e);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Takes the records of every whole command out of the pending buffer, cancelling any scheduled commit.
+     *
+     * @return The records, or null if there are none.
+     * @throws UncheckedIOException If an earlier commit failed.
+     */
+    private ByteBuffer takeCommands() {
+        lock.lock();
+        try {
+            if (scheduledCommit != null) {
+                scheduledCommit.cancel();
+                scheduledCommit = null;
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Could not write the journal", failure);
+            }
+            if (commandsEnd == 0) return null;
+
+            ByteBuffer commands = ByteBuffer.allocate(commandsEnd);
+            commands.put(pending.duplicate().position(0).limit(commandsEnd)).flip();
+            // Keep only the records of the command still being carried out
+            pending.limit(pending.position()).position(commandsEnd);
+            pending.compact();
+            commandsEnd = 0;
+            pendingCommands = 0;
+            return commands;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Commits any records still gathered and closes the journal file.
+     *
+     * @throws IOException If the journal cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            lock.lock();
+            try {
+                commandsEnd = pending.position();
+            } finally {
+                lock.unlock();
+            }
+            commit();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            channel.close();
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Reads a journal so that its session can be replayed.
+     *
+     * @param path The path of the journal file.
+     * @return The settings, lines and random choices recorded in the journal.
+     * @throws IOException If the file cannot be read, or is not the journal of a single session.
+     */
+    public static Replay read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) throw new IOException("Not a journal: " + path);
+        int version = buffer.getInt();
+        if (version != VERSION) throw new IOException("Journal is from version " + version + " of the game, not " + VERSION);
+
+        Replay replay = new Replay();
+        try {
+            while (buffer.hasRemaining()) {
+                byte tag = buffer.get();
+                switch (tag) {
+                    case SETTINGS -> {
+                        if (replay.settingsPreset || !replay.lines.isEmpty()) {
+                            throw new IOException("Journal holds more than one session: settings at byte " + (buffer.position() - 1));
+                        }
+                        boolean mapEnabled = buffer.get() != 0;
+                        boolean randomCharacterMovement = buffer.get() != 0;
+                        int randomMovementChance = buffer.getInt();
+                        replay.settingsPreset = true;
+                        replay.mapEnabled = mapEnabled;
+                        replay.randomCharacterMovement = randomCharacterMovement;
+                        replay.randomMovementChance = randomMovementChance;
+                    }
+                    case LINE -> {
+                        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+                        buffer.get(bytes);
+                        replay.lines.add(new String(bytes, StandardCharsets.UTF_8));
+                    }
+                    case RANDOM -> replay.addRandom(buffer.getInt());
+                    default -> throw new IOException("Journal has an unknown record at byte " + (buffer.position() - 1));
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            // The last record was cut short by a crash before it was committed, so the journal ends before it
+        }
+        return replay;
+    }
+
+    /**
+     * Commits the current group when its delay has passed, remembering any error for the next call.
+     */
+    private void scheduledCommit() {
+        try {
+            commit();
+        } catch (UncheckedIOException e) {
+            // Already remembered in failure
+        }
+    }
+
+    /**
+     * Grows the buffer of pending records, if needed, so that the given number of bytes can be put into it.
+     * The lock must be held.
+     */
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            larger.put(pending.flip());
+            pending = larger;
+        }
+    }
+
+    /**
+     * The settings, lines of input and random choices read from a journal, in the order they were recorded.
+     */
+    public static class Replay {
+        private boolean settingsPreset; // Whether settings were given up front, rather than answered in the lines
+        private boolean mapEnabled, randomCharacterMovement; // The preset settings
+        private int randomMovementChance = 100; // The preset chance of a character moving
+        private ArrayList<String> lines = new ArrayList<>(); // The lines of input
+        private int[] randoms = new int[64]; // The outcomes of the random choices
+        private int randomCount; // The number of random choices recorded
+        private int nextRandom; // The next random choice to give out
+
+        /**
+         * @return true if the settings were given up front rather than answered in the lines of input.
+         */
+        public boolean isSettingsPreset() {
+            return settingsPreset;
+        }
+
+        /**
+         * @return Whether the map is enabled in the preset settings.
+         */
+        public boolean isMapEnabled() {
+            return mapEnabled;
+        }
+
+        /**
+         * @return Whether random character movement is enabled in the preset settings.
+         */
+        public boolean isRandomCharacterMovement() {
+            return randomCharacterMovement;
+        }
+
+        /**
+         * @return The preset chance, one in this many, of a character moving after each command.
+         */
+        public int getRandomMovementChance() {
+            return randomMovementChance;
+        }
+
+        /**
+         * @return The lines of input, in the order they were read.
+         */
+        public ArrayList<String> getLines() {
+            return lines;
+        }
+
+        /**
+         * Returns the outcome of the next random choice, in place of drawing a new one.
+         *
+         * @param bound The number of possible outcomes of the choice.
+         * @return The outcome recorded for the choice.
+         * @throws MismatchException If the replay has made a choice that was not recorded, so it has
+         *                           gone differently from the session that was journalled.
+         */
+        public int nextRandom(int bound) {
+            if (nextRandom == randomCount) {
+                throw new MismatchException("The replay made more random choices than the " + randomCount + " in the journal");
+            }
+            if (randoms[nextRandom] >= bound) {
+                throw new MismatchException("Random choice " + (nextRandom + 1) + " in the journal is "
+                        + randoms[nextRandom] + ", but the replay chose from " + bound);
+            }
+            return randoms[nextRandom++];
+        }
+
+        /**
+         * Adds the outcome of a random choice read from the journal.
+         */
+        private void addRandom(int value) {
+            if (randomCount == randoms.length) {
+                randoms = Arrays.copyOf(randoms, randomCount * 2);
+            }
+            randoms[randomCount++] = value;
+        }
+    }
+
+    /**
+     * Thrown when a replay goes differently from the session that was journalled, such as when the journal
+     * is short or was written by a different version of the manor.
+     */
+    public static class MismatchException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        MismatchException(String message) {
+            super(message);
+        }
+    }
+}
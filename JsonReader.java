@@ -0,0 +1,357 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * The JsonReader class reads a JSON document one token at a time.
+ * <p>
+ * Rather than building the whole document in memory, the caller walks through it in the order it is written,
+ * calling {@link #beginObject()}, {@link #nextName()}, {@link #nextString()} and so on, and skipping anything it
+ * does not need with {@link #skipValue()}. Characters are read through a fixed buffer, so large files such as a
+ * manor with tens of thousands of rooms can be read quickly without holding them in memory.
+ * <p>
+ * Malformed input is reported with an IOException which gives the line it was found on.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class JsonReader implements Closeable {
+    private Reader in; // The reader the document is read from
+    private char[] buffer = new char[8192]; // Characters read but not yet used
+    private int position, limit; // The next character to use in the buffer, and the end of the characters read
+    private int line = 1; // The line of the document being read, for error messages
+    private boolean needComma; // Whether a comma is expected before the next name or value
+    private StringBuilder string = new StringBuilder(); // Reused to build each string read
+
+    /**
+     * Constructs a reader for the JSON document read from the given reader.
+     *
+     * @param in The reader the document is read from.
+     */
+    public JsonReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the start of an object.
+     *
+     * @throws IOException If the next value is not an object.
+     */
+    public void beginObject() throws IOException {
+        beforeValue();
+        expect('{');
+        needComma = false;
+    }
+
+    /**
+     * Reads the end of the current object.
+     *
+     * @throws IOException If the object has more members.
+     */
+    public void endObject() throws IOException {
+        expect('}');
+        needComma = true;
+    }
+
+    /**
+     * Reads the start of an array.
+     *
+     * @throws IOException If the next value is not an array.
+     */
+    public void beginArray() throws IOException {
+        beforeValue();
+        expect('[');
+        needComma = false;
+    }
+
+    /**
+     * Reads the end of the current array.
+     *
+     * @throws IOException If the array has more elements.
+     */
+    public void endArray() throws IOException {
+        expect(']');
+        needComma = true;
+    }
+
+    /**
+     * @return true if the current object or array has another member or element.
+     * @throws IOException If the document cannot be read.
+     */
+    public boolean hasNext() throws IOException {
+        int c = peek();
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    /**
+     * Reads the name of the next member of the current object.
+     *
+     * @return The name.
+     * @throws IOException If the next token is not a name.
+     */
+    public String nextName() throws IOException {
+        beforeValue();
+        String name = readString();
+        expect(':');
+        needComma = false;
+        return name;
+    }
+
+    /**
+     * Reads a string value.
+     *
+     * @return The string.
+     * @throws IOException If the next value is not a string.
+     */
+    public String nextString() throws IOException {
+        beforeValue();
+        String value = readString();
+        needComma = true;
+        return value;
+    }
+
+    /**
+     * Reads a whole number value.
+     *
+     * @return The number.
+     * @throws IOException If the next value is not a whole number which fits in an int.
+     */
+    public int nextInt() throws IOException {
+        beforeValue();
+        boolean negative = peek() == '-';
+        if (negative) position++;
+
+        long value = 0;
+        int digits = 0;
+        int c;
+        while ((c = peekRaw()) >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            position++;
+            if (++digits > 10) break;
+        }
+        if (negative) value = -value;
+        if (digits == 0 || digits > 10 || value != (int) value || c == '.' || c == 'e' || c == 'E') {
+            throw error("Expected a whole number");
+        }
+        needComma = true;
+        return (int) value;
+    }
+
+    /**
+     * Reads a boolean value.
+     *
+     * @return The boolean.
+     * @throws IOException If the next value is not true or false.
+     */
+    public boolean nextBoolean() throws IOException {
+        beforeValue();
+        boolean value;
+        if (peek() == 't') {
+            expectWord("true");
+            value = true;
+        } else {
+            expectWord("false");
+            value = false;
+        }
+        needComma = true;
+        return value;
+    }
+
+    /**
+     * Skips the next value, including everything inside it if it is an object or array.
+     *
+     * @throws IOException If the next value is malformed.
+     */
+    public void skipValue() throws IOException {
+        beforeValue();
+        int c = peek();
+        switch (c) {
+            case '{' -> {
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+            }
+            case '[' -> {
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+            }
+            case '"' -> nextString();
+            case 't', 'f' -> nextBoolean();
+            case 'n' -> {
+                expectWord("null");
+                needComma = true;
+            }
+            default -> {
+                while ((c = peekRaw()) == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+                    position++;
+                }
+                needComma = true;
+            }
+        }
+    }
+
+    /**
+     * Checks that the whole document has been read.
+     *
+     * @throws IOException If there is anything other than whitespace after the document.
+     */
+    public void endDocument() throws IOException {
+        if (peek() != -1) throw error("Unexpected content after the end of the document");
+    }
+
+    /**
+     * @return The line of the document being read.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Creates an exception for malformed input, giving the line it was found on.
+     *
+     * @param message What was wrong with the input.
+     * @return The exception.
+     */
+    public IOException error(String message) {
+        return new IOException(message + " at line " + line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads the comma separating this name or value from the one before it, if one is needed.
+     */
+    private void beforeValue() throws IOException {
+        if (needComma) {
+            expect(',');
+            needComma = false;
+        }
+    }
+
+    /**
+     * Reads a quoted string, turning escape sequences into the characters they stand for.
+     * <p>
+     * Most strings have no escape sequences and fit in the buffer, so they are made straight from the buffer.
+     */
+    private String readString() throws IOException {
+        expect('"');
+        int start = position;
+        while (position < limit) {
+            char c = buffer[position];
+            if (c == '"') {
+                position++;
+                return new String(buffer, start, position - 1 - start);
+            }
+            if (c == '\\' || c == '\n') break;
+            position++;
+        }
+
+        string.setLength(0);
+        string.append(buffer, start, position - start);
+
+        while (true) {
+            int c = read();
+            switch (c) {
+                case -1, '\n' -> throw error("Unterminated string");
+                case '"' -> {
+                    return string.toString();
+                }
+                case '\\' -> string.append(readEscape());
+                default -> string.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of an escape sequence after its backslash.
+     */
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case '"', '\\', '/' -> { return (char) c; }
+            case 'b' -> { return '\b'; }
+            case 'f' -> { return '\f'; }
+            case 'n' -> { return '\n'; }
+            case 'r' -> { return '\r'; }
+            case 't' -> { return '\t'; }
+            case 'u' -> {
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = java.lang.Character.digit(read(), 16);
+                    if (digit < 0) throw error("Invalid unicode escape");
+                    value = value * 16 + digit;
+                }
+                return (char) value;
+            }
+            default -> throw error("Invalid escape sequence");
+        }
+    }
+
+    /**
+     * Reads a literal word such as true, false or null.
+     */
+    private void expectWord(String word) throws IOException {
+        for (int i = 0; i < word.length(); i++) {
+            if (read() != word.charAt(i)) throw error("Expected " + word);
+        }
+    }
+
+    /**
+     * Skips whitespace and reads the given character.
+     */
+    private void expect(char expected) throws IOException {
+        if (peek() != expected) throw error("Expected '" + expected + "'");
+        position++;
+    }
+
+    /**
+     * Skips whitespace and returns the next character without reading it, or -1 at the end of the document.
+     */
+    private int peek() throws IOException {
+        while (true) {
+            int c = peekRaw();
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return c;
+            if (c == '\n') line++;
+            position++;
+        }
+    }
+
+    /**
+     * Returns the next character without reading it, or -1 at the end of the document.
+     */
+    private int peekRaw() throws IOException {
+        if (position == limit && !fillBuffer()) return -1;
+        return buffer[position];
+    }
+
+    /**
+     * Reads the next character, or returns -1 at the end of the document.
+     */
+    private int read() throws IOException {
+        if (position == limit && !fillBuffer()) return -1;
+        return buffer[position++];
+    }
+
+    /**
+     * Reads more characters into the buffer.
+     *
+     * @return true if any characters were read; false at the end of the document.
+     */
+    private boolean fillBuffer() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) return false;
+
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class counts how many times each length of time has been recorded, so that percentiles
+ * such as the median or the 99th percentile can be read back.
+ * <p>
+ * Times are recorded in nanoseconds into buckets which grow with the time, in the manner of an HDR histogram:
+ * times under {@value #SUB_BUCKETS} nanoseconds each have a bucket of their own, and each doubling above that is
+ * split into {@value #HALF_SUB_BUCKETS} buckets, so a time is always known to within about 6% of its value. Times
+ * of over {@value #MAX_SECONDS} seconds are counted as the longest time. Recording a time only increments one
+ * counter in an atomic array, so it takes no lock and many threads can record into the same histogram at once.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5; // Times are kept to this many significant bits
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // The number of times which have a bucket each
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2; // The number of buckets each doubling is split into
+    private static final int MAX_SECONDS = 1000; // The longest time kept apart from the others
+    private static final long MAX_NANOS = MAX_SECONDS * 1_000_000_000L; // The longest time, in nanoseconds
+
+    private final AtomicLongArray counts = new AtomicLongArray(bucket(MAX_NANOS) + 1); // The number of times in each bucket
+    private final LongAdder totalNanos = new LongAdder(); // The sum of every time recorded
+
+    /**
+     * Records a length of time.
+     *
+     * @param nanos The time, in nanoseconds.
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(nanos));
+        totalNanos.add(nanos);
+    }
+
+    /**
+     * @return The number of times recorded.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return The mean of the times recorded, in nanoseconds, or 0 if none have been.
+     */
+    public long getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.sum() / count;
+    }
+
+    /**
+     * Returns the time which the given percentage of the times recorded were no longer than. The times being
+     * recorded as this is read may or may not be counted.
+     *
+     * @param percentile The percentage, from 0 to 100.
+     * @return The time in nanoseconds, rounded up to the end of its bucket, or 0 if no times have been recorded.
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] snapshot = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return highestInBucket(i);
+        }
+        return MAX_NANOS;
+    }
+
+    /**
+     * Returns the bucket a time is counted in.
+     */
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) Math.max(0, nanos);
+
+        nanos = Math.min(nanos, MAX_NANOS);
+        int shift = 64 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS; // Keeps the top SUB_BUCKET_BITS bits
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) (nanos >>> shift) - HALF_SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the longest time counted in a bucket.
+     */
+    private static long highestInBucket(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+
+        int shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long top = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS; // The top bits of the times in the bucket
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,430 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LoadGenerator class plays the manor with many simulated players at once and measures how quickly the
+ * game answers them, to size the hardware a server needs and to catch falls in throughput before a release.
+ * <p>
+ * Each bot plays on its own virtual thread, either against games in the same JVM or against a {@link GameServer}
+ * over a socket. A bot sends a command and records the time until the game starts to answer it, then waits
+ * for the prompt before sending the next. Games in the same JVM run under a {@link VirtualClock}, so the pauses
+ * in dialog are not waited out. A server plays them out in real time, and a bot waits for them before its next
+ * command as a player who does not skip them would, but only the start of the answer is timed, so they are
+ * not counted as latency.
+ * <p>
+ * The bots play in one of three ways: following the winning route in walkthrough.txt, wandering through
+ * random exits, or picking up and dropping items over and over. A bot starts a new game whenever its game ends,
+ * until the run is over. The times of the first few seconds are left out of the report, while the game warms up.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class LoadGenerator {
+    public static final String WIN_ROUTE_FILE = "walkthrough.txt"; // The commands which win the game, one per line
+    private static final int COMMANDS_PER_SESSION = 200; // The commands a wandering or churning bot gives before starting a new game
+
+    // The commands a wandering bot chooses from
+    private static final String[] RANDOM_COMMANDS = {"go north", "go east", "go south", "go west", "back", "room info"};
+    // The commands a churning bot repeats, in the library, after going north from the entrance hall
+    private static final String[] CHURN_COMMANDS = {"inventory pickup ancient_book", "inventory pickup coin",
+            "inventory display", "inventory drop ancient_book", "inventory drop coin"};
+
+    /**
+     * The ways a bot can play.
+     */
+    public enum Behaviour {
+        WIN, RANDOM, CHURN, MIXED;
+
+        /**
+         * Returns the behaviour a word stands for.
+         *
+         * @param word The word, such as "win".
+         * @return The behaviour.
+         * @throws IllegalArgumentException If the word is not a behaviour.
+         */
+        public static Behaviour parse(String word) {
+            return switch (word) {
+                case "win" -> WIN;
+                case "random" -> RANDOM;
+                case "churn" -> CHURN;
+                case "mixed" -> MIXED;
+                default -> throw new IllegalArgumentException("Unknown behaviour: " + word);
+            };
+        }
+    }
+
+    private int bots; // The number of bots
+    private Behaviour behaviour; // How the bots play; mixed bots take turns at the other behaviours
+    private String host; // The host of the server to play against, or null to play in this JVM
+    private int port; // The port of the server
+    private long seconds = 10; // How long the times are measured for
+    private long warmupSeconds = 2; // How long the bots play before the times are measured
+    private Long seed; // The seed of the bots' random choices, or null for a different seed each run
+    private List<String> winRoute; // The commands which win the game
+
+    private volatile boolean running; // Whether the bots should keep playing
+    private volatile boolean measuring; // Whether the bots' commands are being counted and timed
+    private final LatencyHistogram latency = new LatencyHistogram(); // The time each command took to be answered
+    private final LongAdder commands = new LongAdder(); // The number of commands given while measuring
+    private final LongAdder sessions = new LongAdder(); // The number of games finished while measuring
+    private final LongAdder errors = new LongAdder(); // The number of connections which failed
+
+    /**
+     * Constructs a load generator which plays in this JVM.
+     *
+     * @param bots The number of bots.
+     * @param behaviour How the bots play.
+     */
+    public LoadGenerator(int bots, Behaviour behaviour) {
+        this.bots = bots;
+        this.behaviour = behaviour;
+    }
+
+    /**
+     * Plays against a server instead of in this JVM.
+     *
+     * @param host The host of the server.
+     * @param port The port of the server.
+     */
+    public void setServer(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Sets how long the bots play for.
+     *
+     * @param warmupSeconds How long the bots play before their commands are measured.
+     * @param seconds How long their commands are measured for.
+     */
+    public void setDuration(long warmupSeconds, long seconds) {
+        this.warmupSeconds = warmupSeconds;
+        this.seconds = seconds;
+    }
+
+    /**
+     * Sets the seed of the bots' random choices, and of the games played in this JVM.
+     *
+     * @param seed The seed, or null for a different seed each run.
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the bots for the warmup and then the measured time, and waits for them to finish their last commands.
+     *
+     * @return The report of the commands measured.
+     * @throws IOException If the winning route cannot be read.
+     * @throws InterruptedException If the thread is interrupted while the bots are playing.
+     */
+    public String run() throws IOException, InterruptedException {
+        winRoute = Files.readAllLines(Path.of(WIN_ROUTE_FILE));
+        SplittableRandom seeds = seed == null ? new SplittableRandom() : new SplittableRandom(seed);
+
+        running = true;
+        long measuredNanos;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < bots; i++) {
+                Behaviour botBehaviour = behaviour == Behaviour.MIXED ? Behaviour.values()[i % 3] : behaviour;
+                SplittableRandom random = seeds.split();
+                executor.submit(() -> playUntilStopped(botBehaviour, random));
+            }
+
+            Thread.sleep(warmupSeconds * 1000);
+            measuring = true;
+            long start = System.nanoTime();
+            Thread.sleep(seconds * 1000);
+            measuring = false;
+            measuredNanos = System.nanoTime() - start;
+            running = false;
+        }
+        return report(measuredNanos);
+    }
+
+    /**
+     * Plays one game after another until the run is over.
+     *
+     * @param behaviour How the bot plays.
+     * @param random Where the bot's random choices are drawn from.
+     */
+    private void playUntilStopped(Behaviour behaviour, SplittableRandom random) {
+        while (running) {
+            try (Connection connection = connect(random.nextLong())) {
+                if (!connection.awaitPrompt()) continue;
+                playSession(connection, behaviour, random);
+                if (measuring) sessions.increment();
+            } catch (IOException e) {
+                errors.increment();
+                return; // The server is unreachable or has gone away, so this bot stops
+            }
+        }
+    }
+
+    /**
+     * Plays a single game until it ends, the bot has given all of its commands for the game, or the run is over.
+     */
+    private void playSession(Connection connection, Behaviour behaviour, SplittableRandom random) throws IOException {
+        int length = behaviour == Behaviour.WIN ? winRoute.size() : COMMANDS_PER_SESSION;
+        for (int i = 0; i < length && running; i++) {
+            String line = switch (behaviour) {
+                case WIN -> winRoute.get(i);
+                case CHURN -> i == 0 ? "go north" : CHURN_COMMANDS[(i - 1) % CHURN_COMMANDS.length];
+                default -> RANDOM_COMMANDS[random.nextInt(RANDOM_COMMANDS.length)];
+            };
+
+            boolean measured = measuring;
+            long start = System.nanoTime();
+            connection.send(line);
+            boolean answered = connection.awaitOutput();
+            long nanos = System.nanoTime() - start;
+
+            if (measured) {
+                commands.increment();
+                if (answered) latency.record(nanos);
+            }
+            if (!answered || !connection.awaitPrompt()) return; // The game has ended
+        }
+    }
+
+    /**
+     * Starts a new game, in this JVM or on the server.
+     *
+     * @param gameSeed The seed of the game, if it is played in this JVM and the run is seeded.
+     */
+    private Connection connect(long gameSeed) throws IOException {
+        if (host != null) {
+            return new SocketConnection(new Socket(host, port));
+        }
+        return new LocalConnection(seed == null ? null : gameSeed);
+    }
+
+    /**
+     * Writes the number of commands given, how many were given each second and how long they took.
+     */
+    private String report(long measuredNanos) {
+        double measuredSeconds = measuredNanos / 1e9;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Bots: %d (%s), %s%n", bots, behaviour.name().toLowerCase(),
+                host == null ? "in process" : "against " + host + ":" + port));
+        report.append(String.format("Measured: %.1f s after %d s of warmup%n", measuredSeconds, warmupSeconds));
+        report.append(String.format("Games finished: %d%n", sessions.sum()));
+        report.append(String.format("Commands: %d (%.1f per second)%n", commands.sum(), commands.sum() / measuredSeconds));
+        report.append(String.format("Latency: mean %s, p50 %s, p99 %s, p99.9 %s, max %s%n",
+                micros(latency.getMeanNanos()), micros(latency.getPercentileNanos(50)), micros(latency.getPercentileNanos(99)),
+                micros(latency.getPercentileNanos(99.9)), micros(latency.getPercentileNanos(100))));
+        if (errors.sum() > 0) {
+            report.append(String.format("Failed connections: %d%n", errors.sum()));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Formats a time in nanoseconds as microseconds.
+     */
+    private static String micros(long nanos) {
+        return String.format("%.1fus", nanos / 1000.0);
+    }
+
+    /**
+     * A game a bot is playing, which it sends lines to and waits for the prompts of.
+     */
+    private interface Connection extends Closeable {
+        /**
+         * Sends a line to the game.
+         *
+         * @param line The line, without a line ending.
+         * @throws IOException If the line cannot be sent.
+         */
+        void send(String line) throws IOException;
+
+        /**
+         * Waits until the game starts to answer the line last sent, or ends.
+         *
+         * @return true if the game wrote something; false if it ended.
+         * @throws IOException If the game's output cannot be read.
+         */
+        boolean awaitOutput() throws IOException;
+
+        /**
+         * Waits until the game prompts for the next line, or ends.
+         *
+         * @return true if the game prompted for the next line; false if it ended.
+         * @throws IOException If the game's output cannot be read.
+         */
+        boolean awaitPrompt() throws IOException;
+    }
+
+    /**
+     * A game played in this JVM on a virtual thread of its own. Lines are passed to it through a queue, and its
+     * output is only looked at for the prompt at the end of a batch.
+     */
+    private static class LocalConnection extends InputStream implements Connection, OutputSink {
+        private static final byte[] END = new byte[0]; // Put on the queue of lines when the bot stops playing
+        private static final int OUTPUT = 0, PROMPT = 1, ENDED = 2; // What the game has done, in the queue of writes
+
+        private final LinkedBlockingQueue<byte[]> lines = new LinkedBlockingQueue<>(); // The lines sent and not yet read by the game
+        private final LinkedBlockingQueue<Integer> writes = new LinkedBlockingQueue<>(); // Each batch of output the game has written, then its end
+        private int last = OUTPUT; // The last write taken from the queue
+        private byte[] line; // The line the game is reading
+        private int position; // How much of the line the game has read
+
+        LocalConnection(Long seed) {
+            Game game = new Game(this, this);
+            game.presetGameValues(false, null);
+            game.setClock(new VirtualClock());
+            if (seed != null) game.setSeed(seed);
+
+            Thread.ofVirtual().start(() -> {
+                try {
+                    game.play();
+                } catch (NoSuchElementException e) {
+                    // The bot stopped playing
+                } finally {
+                    writes.add(ENDED);
+                }
+            });
+        }
+
+        @Override
+        public void send(String line) {
+            lines.add((line + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public boolean awaitOutput() throws IOException {
+            last = takeWrite();
+            return last != ENDED;
+        }
+
+        @Override
+        public boolean awaitPrompt() throws IOException {
+            while (last == OUTPUT) {
+                last = takeWrite();
+            }
+            boolean prompted = last == PROMPT;
+            last = OUTPUT;
+            return prompted;
+        }
+
+        private int takeWrite() throws IOException {
+            try {
+                return writes.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the game", e);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            boolean prompt = length >= 2 && bytes[offset + length - 2] == '>' && bytes[offset + length - 1] == ' ';
+            writes.add(prompt ? PROMPT : OUTPUT);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (line == null || position == line.length) {
+                try {
+                    line = lines.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for a line", e);
+                }
+                position = 0;
+                if (line == END) {
+                    lines.add(END); // Any further reads also find the end
+                    return -1;
+                }
+            }
+
+            int read = Math.min(length, line.length - position);
+            System.arraycopy(line, position, bytes, offset, read);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+            lines.add(END);
+        }
+    }
+
+    /**
+     * A game played on a server. The settings the server asks for are answered when the game starts, and its
+     * output is read until the prompt at the end of each batch.
+     */
+    private static class SocketConnection implements Connection {
+        private static final int SETTINGS_PROMPTS = 2; // The questions asked before play begins, each answered no
+
+        private final Socket socket; // The connection to the server
+        private final InputStream in; // The game's output
+        private final OutputStream out; // Where lines are sent to the game
+        private int previous = -1; // The last byte read
+        private boolean ended; // Whether the server has closed the connection
+
+        SocketConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            in = new BufferedInputStream(socket.getInputStream());
+            out = socket.getOutputStream();
+
+            for (int i = 0; i < SETTINGS_PROMPTS; i++) {
+                if (!awaitPrompt()) throw new IOException("The server closed the connection before play began");
+                send("n");
+            }
+        }
+
+        @Override
+        public void send(String line) throws IOException {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        @Override
+        public boolean awaitOutput() throws IOException {
+            previous = in.read();
+            ended = previous < 0;
+            return !ended;
+        }
+
+        @Override
+        public boolean awaitPrompt() throws IOException {
+            while (!ended) {
+                int b = in.read();
+                ended = b < 0;
+                if (previous == '>' && b == ' ') {
+                    previous = -1;
+                    return true;
+                }
+                previous = b;
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
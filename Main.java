@@ -1,15 +1,322 @@
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
 /**
  * The Main class is the entry point of the game application.
  * <p>
  * This class contains the main method which creates an instance of the Game class
  * and starts the game by calling the play method.
+ * <p>
+ * If started with "--server [port]", the game is instead hosted over TCP by a GameServer,
+ * with one game per connection. With "--journal", each connection's session is journalled in the journals directory,
+ * with "--tick [millis]", characters move on a fixed tick rather than after each command, and with "--admin",
+ * players are given the admin commands such as stats. At the console, the player is always given them.
+ * "--journal" and "--tick" cannot be used together, as the ticks follow the wall clock and are not journalled,
+ * so a replay could not move the characters as they moved in the session.
+ * <p>
+ * If started with "--script [file]", the game is played from a script of commands by a ScriptedRun.
+ * A script of "-" is read from standard input. The options "--map", "--movement [easy/medium/hard]"
+ * and "--transcript [file]" replace the settings prompts and choose where the transcript is written,
+ * "--seed [number]" makes its random choices reproducible, and "--journal [file]" records the run in a journal.
+ * The exit code of the process is the exit code of the run.
+ * <p>
+ * If started with "--replay [journal]", the journalled session is replayed, with its transcript written
+ * to standard output or to the file given with "--transcript [file]".
+ * <p>
+ * If started with "--load [bots]", a LoadGenerator plays that many games at once and reports how many commands
+ * were answered each second and how long they took. "--behaviour [win/random/churn/mixed]" chooses how the bots
+ * play, "--connect [host:port]" plays against a server rather than in the same JVM, "--warmup [seconds]" and
+ * "--seconds [seconds]" set how long the bots play before and while they are measured, and "--seed [number]"
+ * makes their random choices reproducible.
+ * <p>
+ * If an option is not known or its value is missing or not valid, the usage is printed and the process exits
+ * with the code 64. If a file or the server's port cannot be used, the error is printed and it exits with 74,
+ * and if a replay goes differently from its journal, it exits with 65.
  *
  * @author Mahdi Razzaque
  * @version 28.11.2024
  */
 public class Main {
+    private static final int EXIT_USAGE = 64; // The exit code when the command line options are not valid
+    private static final int EXIT_REPLAY_MISMATCH = 65; // The exit code when a replay no longer matches its journal
+    private static final int EXIT_IO_ERROR = 74; // The exit code when a file or connection cannot be used
+
+    private static final String USAGE = """
+            Usage: java Main
+                   java Main --server [port] [--journal | --tick millis] [--admin]
+                   java Main --script file|- [--map] [--movement easy|medium|hard] [--transcript file]
+                                             [--journal file] [--seed number]
+                   java Main --replay journal [--transcript file]
+                   java Main --load bots [--behaviour win|random|churn|mixed] [--connect host[:port]]
+                                         [--warmup seconds] [--seconds seconds] [--seed number]
+            """;
+
     public static void main(String[] args) {
-        Game game = new Game();
-        game.play();
+        try {
+            if (args.length == 0) {
+                Game game = new Game();
+                game.enableAdminCommands();
+                game.play();
+                return;
+            }
+
+            switch (args[0]) {
+                case "--server" -> serve(args);
+                case "--script" -> System.exit(runScript(args));
+                case "--replay" -> System.exit(replay(args));
+                case "--load" -> generateLoad(args);
+                default -> throw new UsageException("Unknown option: " + args[0]);
+            }
+        } catch (UsageException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(EXIT_USAGE);
+        } catch (Journal.MismatchException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(EXIT_REPLAY_MISMATCH);
+        } catch (NoSuchFileException e) {
+            System.err.println("Error: no such file: " + e.getFile());
+            System.exit(EXIT_IO_ERROR);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(EXIT_IO_ERROR);
+        }
+    }
+
+    /**
+     * Hosts the game over TCP with the port and settings given in the arguments.
+     *
+     * @param args The command line arguments, starting with "--server".
+     * @throws IOException If the server cannot listen on the port.
+     */
+    private static void serve(String[] args) throws IOException {
+        int port = GameServer.DEFAULT_PORT;
+        boolean journalled = false;
+        long tickMillis = 0;
+        boolean adminCommands = false;
+
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--journal" -> journalled = true;
+                case "--tick" -> tickMillis = parseLong(args, ++i, 1);
+                case "--admin" -> adminCommands = true;
+                default -> {
+                    if (args[i].startsWith("--")) throw new UsageException("Unknown option: " + args[i]);
+                    port = parsePort(args[i], "--server");
+                }
+            }
+        }
+
+        if (journalled && tickMillis > 0) {
+            throw new UsageException("--journal cannot be used with --tick, as the ticks would not be replayed");
+        }
+
+        new GameServer(port, journalled, tickMillis, adminCommands).start();
+    }
+
+    /**
+     * Runs the script named in the arguments with the settings given in the remaining options.
+     *
+     * @param args The command line arguments, starting with "--script [file]".
+     * @return The exit code of the run.
+     * @throws IOException If the script or transcript file cannot be opened.
+     */
+    private static int runScript(String[] args) throws IOException {
+        String scriptFile = valueOf(args, 1);
+        boolean mapEnabled = false;
+        String difficulty = null;
+        String transcriptFile = null;
+        String journalFile = null;
+        Long seed = null;
+
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--map" -> mapEnabled = true;
+                case "--movement" -> difficulty = parseDifficulty(args, ++i);
+                case "--transcript" -> transcriptFile = valueOf(args, ++i);
+                case "--journal" -> journalFile = valueOf(args, ++i);
+                case "--seed" -> seed = parseLong(args, ++i, Long.MIN_VALUE);
+                default -> throw new UsageException("Unknown option: " + args[i]);
+            }
+        }
+
+        ScriptedRun run = new ScriptedRun(mapEnabled, difficulty);
+        run.setSeed(seed);
+        if (journalFile != null) {
+            run.setJournalFile(Path.of(journalFile));
+        }
+        try (InputStream script = scriptFile.equals("-") ? System.in : new FileInputStream(scriptFile);
+             OutputStream transcript = transcriptFile == null ? System.out : new FileOutputStream(transcriptFile)) {
+            int exitCode = run.run(script, transcript);
+            transcript.flush();
+            return exitCode;
+        }
+    }
+
+    /**
+     * Plays the manor with the number of bots given in the arguments, and prints the report of how it performed.
+     *
+     * @param args The command line arguments, starting with "--load [bots]".
+     * @throws IOException If the winning route cannot be read.
+     */
+    private static void generateLoad(String[] args) throws IOException {
+        int bots = (int) Math.min(parseLong(args, 1, 1), Integer.MAX_VALUE);
+        LoadGenerator.Behaviour behaviour = LoadGenerator.Behaviour.MIXED;
+        String server = null;
+        long warmupSeconds = 2;
+        long seconds = 10;
+        Long seed = null;
+
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--behaviour" -> behaviour = parseBehaviour(args, ++i);
+                case "--connect" -> server = valueOf(args, ++i);
+                case "--warmup" -> warmupSeconds = parseLong(args, ++i, 0);
+                case "--seconds" -> seconds = parseLong(args, ++i, 1);
+                case "--seed" -> seed = parseLong(args, ++i, Long.MIN_VALUE);
+                default -> throw new UsageException("Unknown option: " + args[i]);
+            }
+        }
+
+        LoadGenerator generator = new LoadGenerator(bots, behaviour);
+        generator.setDuration(warmupSeconds, seconds);
+        generator.setSeed(seed);
+        if (server != null) {
+            int colon = server.lastIndexOf(':');
+            generator.setServer(colon < 0 ? server : server.substring(0, colon),
+                    colon < 0 ? GameServer.DEFAULT_PORT : parsePort(server.substring(colon + 1), "--connect"));
+        }
+
+        try {
+            System.out.print(generator.run());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Replays the journal named in the arguments, writing the transcript where the remaining options say.
+     *
+     * @param args The command line arguments, starting with "--replay [journal]".
+     * @return The exit code of the replay.
+     * @throws IOException If the journal or transcript file cannot be opened, or the journal cannot be read.
+     */
+    private static int replay(String[] args) throws IOException {
+        String journalFile = valueOf(args, 1);
+        String transcriptFile = null;
+
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--transcript" -> transcriptFile = valueOf(args, ++i);
+                default -> throw new UsageException("Unknown option: " + args[i]);
+            }
+        }
+
+        Journal.Replay replay = Journal.read(Path.of(journalFile));
+        try (OutputStream transcript = transcriptFile == null ? System.out : new FileOutputStream(transcriptFile)) {
+            int exitCode = ScriptedRun.replay(replay, transcript);
+            transcript.flush();
+            return exitCode;
+        }
+    }
+
+    /**
+     * Returns the value given to an option.
+     *
+     * @param args The command line arguments.
+     * @param i The index of the value, just after the option.
+     * @return The value.
+     * @throws UsageException If the arguments end before the value.
+     */
+    private static String valueOf(String[] args, int i) {
+        if (i >= args.length) throw new UsageException(args[i - 1] + " needs a value");
+        return args[i];
+    }
+
+    /**
+     * Returns the whole number given to an option.
+     *
+     * @param args The command line arguments.
+     * @param i The index of the value, just after the option.
+     * @param minimum The smallest number the option accepts.
+     * @return The number.
+     * @throws UsageException If the value is missing, is not a whole number or is below the minimum.
+     */
+    private static long parseLong(String[] args, int i, long minimum) {
+        String value = valueOf(args, i);
+        long number;
+        try {
+            number = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new UsageException(args[i - 1] + " needs a whole number, not '" + value + "'");
+        }
+        if (number < minimum) throw new UsageException(args[i - 1] + " needs a number of at least " + minimum);
+        return number;
+    }
+
+    /**
+     * Returns a port number.
+     *
+     * @param value The port as it was given.
+     * @param option The option or argument the port was given to, for the message if it is not valid.
+     * @return The port.
+     * @throws UsageException If the value is not a port number from 0 to 65535.
+     */
+    private static int parsePort(String value, String option) {
+        try {
+            int port = Integer.parseInt(value);
+            if (port >= 0 && port <= 65535) return port;
+        } catch (NumberFormatException e) {
+            // Reported below along with ports out of range
+        }
+        throw new UsageException(option + " needs a port from 0 to 65535, not '" + value + "'");
+    }
+
+    /**
+     * Returns the difficulty of random character movement given to "--movement".
+     *
+     * @param args The command line arguments.
+     * @param i The index of the value, just after the option.
+     * @return The difficulty: "easy", "medium" or "hard".
+     * @throws UsageException If the value is missing or is not a difficulty.
+     */
+    private static String parseDifficulty(String[] args, int i) {
+        String difficulty = valueOf(args, i);
+        return switch (difficulty) {
+            case "easy", "medium", "hard" -> difficulty;
+            default -> throw new UsageException("--movement needs easy, medium or hard, not '" + difficulty + "'");
+        };
+    }
+
+    /**
+     * Returns the behaviour of the bots given to "--behaviour".
+     *
+     * @param args The command line arguments.
+     * @param i The index of the value, just after the option.
+     * @return The behaviour.
+     * @throws UsageException If the value is missing or is not a behaviour.
+     */
+    private static LoadGenerator.Behaviour parseBehaviour(String[] args, int i) {
+        try {
+            return LoadGenerator.Behaviour.parse(valueOf(args, i));
+        } catch (IllegalArgumentException e) {
+            throw new UsageException("--behaviour needs win, random, churn or mixed, not '" + args[i] + "'");
+        }
+    }
+
+    /**
+     * Thrown when the command line options are not valid, so that the usage can be printed instead.
+     */
+    private static class UsageException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UsageException(String message) {
+            super(message);
+        }
     }
 }
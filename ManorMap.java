@@ -0,0 +1,206 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * The ManorMap class lays out the rooms of a manor on a grid and draws the part of it the player has explored.
+ * <p>
+ * The layout is worked out once for each {@link WorldTemplate} from the room graph alone: starting from the
+ * start room, each room is placed one square from the room it was first reached from, in the direction of the
+ * exit between them. A room whose square is already taken, which happens when the exits of a manor do not form
+ * a flat grid, is placed in the nearest free square instead, and the exits that no longer join neighbouring
+ * squares are left off the map. Rooms that cannot be reached from the start room are laid out in the same way,
+ * to the right of the others.
+ * <p>
+ * Each room is drawn as a box with its name inside, and each exit between two neighbouring rooms as a corridor
+ * between their boxes. Only the rooms the player has visited are drawn, along with the corridors between them,
+ * and the map is cut down to fit around them.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class ManorMap {
+    private static final int BOX_WIDTH = 16, BOX_HEIGHT = 5; // The size of the box drawn for a room
+    private static final int GAP_WIDTH = 7, GAP_HEIGHT = 4; // The space between boxes, where corridors are drawn
+    private static final int NAME_WIDTH = BOX_WIDTH - 6; // The most characters of a name on one line of a box, leaving a space either side
+
+    private final String[] roomNames; // The name of each room
+    private final int[] exitStart; // Where each room's exits start in the exit arrays, with one extra entry for the end
+    private final Direction[] exitDirections; // The direction of each exit
+    private final int[] exitRooms; // The room each exit leads to
+    private final int[] xs, ys; // The square each room is placed in, with north at the top
+
+    /**
+     * Lays out the rooms of a manor.
+     *
+     * @param roomNames The name of each room.
+     * @param exitStart Where each room's exits start in the exit arrays, with one extra entry for the end.
+     * @param exitDirections The direction of each exit.
+     * @param exitRooms The room each exit leads to.
+     * @param startRoom The room the layout starts from.
+     */
+    public ManorMap(String[] roomNames, int[] exitStart, Direction[] exitDirections, int[] exitRooms, int startRoom) {
+        this.roomNames = roomNames;
+        this.exitStart = exitStart;
+        this.exitDirections = exitDirections;
+        this.exitRooms = exitRooms;
+        xs = new int[roomNames.length];
+        ys = new int[roomNames.length];
+        layOut(startRoom);
+    }
+
+    /**
+     * Places every room in a square of the grid, searching outwards from the start room.
+     */
+    private void layOut(int startRoom) {
+        boolean[] placed = new boolean[roomNames.length];
+        HashMap<Long, Integer> squares = new HashMap<>(); // The room in each square taken
+        int[] queue = new int[roomNames.length];
+        int right = 0; // The column to the right of every room placed so far
+
+        for (int i = -1; i < roomNames.length; i++) {
+            int first = i < 0 ? startRoom : i;
+            if (placed[first]) continue;
+
+            place(first, i < 0 ? 0 : right + 1, 0, placed, squares);
+            int head = 0, tail = 0;
+            queue[tail++] = first;
+            while (head < tail) {
+                int room = queue[head++];
+                right = Math.max(right, xs[room]);
+                for (int exit = exitStart[room]; exit < exitStart[room + 1]; exit++) {
+                    int next = exitRooms[exit];
+                    if (placed[next]) continue;
+
+                    place(next, xs[room] + exitDirections[exit].getDx(), ys[room] + exitDirections[exit].getDy(), placed, squares);
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Places a room in the given square, or if it is taken, in the nearest free square around it.
+     */
+    private void place(int room, int x, int y, boolean[] placed, HashMap<Long, Integer> squares) {
+        for (int ring = 0; ; ring++) {
+            for (int dy = -ring; dy <= ring; dy++) {
+                for (int dx = -ring; dx <= ring; dx++) {
+                    if (Math.max(Math.abs(dx), Math.abs(dy)) != ring) continue; // Only the squares on this ring
+                    if (squares.putIfAbsent(square(x + dx, y + dy), room) == null) {
+                        xs[room] = x + dx;
+                        ys[room] = y + dy;
+                        placed[room] = true;
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static long square(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Draws the rooms the player has visited and the corridors between them.
+     *
+     * @param visited The ids of the rooms the player has visited.
+     * @return The map, one line after another, or an empty string if no rooms have been visited.
+     */
+    public String render(BitSet visited) {
+        if (visited.isEmpty()) return "";
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int room = visited.nextSetBit(0); room >= 0; room = visited.nextSetBit(room + 1)) {
+            minX = Math.min(minX, xs[room]);
+            minY = Math.min(minY, ys[room]);
+            maxX = Math.max(maxX, xs[room]);
+            maxY = Math.max(maxY, ys[room]);
+        }
+
+        char[][] canvas = new char[(maxY - minY + 1) * (BOX_HEIGHT + GAP_HEIGHT) - GAP_HEIGHT][(maxX - minX + 1) * (BOX_WIDTH + GAP_WIDTH) - GAP_WIDTH];
+        for (char[] line : canvas) {
+            Arrays.fill(line, ' ');
+        }
+
+        for (int room = visited.nextSetBit(0); room >= 0; room = visited.nextSetBit(room + 1)) {
+            int left = (xs[room] - minX) * (BOX_WIDTH + GAP_WIDTH);
+            int top = (ys[room] - minY) * (BOX_HEIGHT + GAP_HEIGHT);
+            drawBox(canvas, left, top, roomNames[room]);
+        }
+
+        // Corridors are drawn once every box is, as they open gaps in the boxes. A corridor between two rooms
+        // which each have an exit to the other is drawn from both of them, which draws the same characters twice.
+        for (int room = visited.nextSetBit(0); room >= 0; room = visited.nextSetBit(room + 1)) {
+            int left = (xs[room] - minX) * (BOX_WIDTH + GAP_WIDTH);
+            int top = (ys[room] - minY) * (BOX_HEIGHT + GAP_HEIGHT);
+            for (int exit = exitStart[room]; exit < exitStart[room + 1]; exit++) {
+                int next = exitRooms[exit];
+                if (!visited.get(next)) continue;
+
+                if (ys[next] == ys[room] && Math.abs(xs[next] - xs[room]) == 1) {
+                    // Two lines of floor across the gap between the boxes
+                    int gapLeft = xs[next] > xs[room] ? left + BOX_WIDTH : left - GAP_WIDTH;
+                    Arrays.fill(canvas[top + 1], gapLeft, gapLeft + GAP_WIDTH, '_');
+                    Arrays.fill(canvas[top + 2], gapLeft, gapLeft + GAP_WIDTH, '_');
+                } else if (xs[next] == xs[room] && Math.abs(ys[next] - ys[room]) == 1) {
+                    // Two walls down the gap between the boxes, opening the top of the box below
+                    int gapTop = ys[next] > ys[room] ? top + BOX_HEIGHT : top - GAP_HEIGHT;
+                    for (int line = gapTop; line <= gapTop + GAP_HEIGHT; line++) {
+                        canvas[line][left + BOX_WIDTH / 2 - 1] = canvas[line][left + BOX_WIDTH / 2] = '|';
+                    }
+                }
+            }
+        }
+
+        StringBuilder map = new StringBuilder(canvas.length * (canvas[0].length + 1));
+        for (char[] line : canvas) {
+            int end = line.length;
+            while (end > 0 && line[end - 1] == ' ') end--;
+            map.append(line, 0, end).append('\n');
+        }
+        return map.toString();
+    }
+
+    /**
+     * Draws a room's box, with its name split between up to three lines in the middle of it.
+     */
+    private static void drawBox(char[][] canvas, int left, int top, String name) {
+        for (int column = 0; column < BOX_WIDTH; column++) {
+            canvas[top][left + column] = '=';
+            canvas[top + BOX_HEIGHT - 1][left + column] = '=';
+        }
+        for (int line = top + 1; line < top + BOX_HEIGHT - 1; line++) {
+            canvas[line][left] = canvas[line][left + 1] = '|';
+            canvas[line][left + BOX_WIDTH - 2] = canvas[line][left + BOX_WIDTH - 1] = '|';
+        }
+
+        String[] lines = wrap(name);
+        int first = lines.length == 3 ? top + 1 : top + 2;
+        for (int l = 0; l < lines.length; l++) {
+            String line = lines[l];
+            line.getChars(0, line.length(), canvas[first + l], left + (BOX_WIDTH - line.length()) / 2);
+        }
+    }
+
+    /**
+     * Splits a name into at most three lines which fit inside a box, cutting short any word that does not fit.
+     */
+    private static String[] wrap(String name) {
+        String[] words = name.split(" ");
+        String[] lines = new String[3];
+        int count = 0;
+        for (String word : words) {
+            if (word.length() > NAME_WIDTH) word = word.substring(0, NAME_WIDTH);
+            if (count > 0 && lines[count - 1].length() + 1 + word.length() <= NAME_WIDTH) {
+                lines[count - 1] += " " + word;
+            } else if (count < lines.length) {
+                lines[count++] = word;
+            } else {
+                break;
+            }
+        }
+        return Arrays.copyOf(lines, count);
+    }
+}
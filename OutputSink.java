@@ -0,0 +1,23 @@
+import java.io.IOException;
+
+/**
+ * An OutputSink is where a game session's output finally goes, such as the console, a network connection
+ * or a buffer in memory.
+ * <p>
+ * A session's {@link PacedOutput} collects everything printed while a command runs and hands it to the sink
+ * in a single call when it is flushed, so each command costs one write to the sink rather than one per line.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public interface OutputSink {
+    /**
+     * Writes a batch of output.
+     *
+     * @param bytes The array holding the output.
+     * @param offset The index of the first byte to write.
+     * @param length The number of bytes to write.
+     * @throws IOException If the output cannot be written, for example because the player has disconnected.
+     */
+    void write(byte[] bytes, int offset, int length) throws IOException;
+}
@@ -0,0 +1,385 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The PacedOutput class is the stream a game session writes all of its output to.
+ * <p>
+ * Output is collected in memory and handed to the session's {@link OutputSink} in one write when the stream
+ * is flushed. The parser flushes once per command, after printing the prompt, so a command's output and
+ * the next prompt reach the player together.
+ * <p>
+ * Narrative sequences, such as character dialog or reading the ancient book, are paced by calling
+ * {@link #pause(int)} between lines. Rather than sleeping, a pause starts a new segment of output which is
+ * written to the player once the delay has passed on the session's {@link GameClock}, by default the shared
+ * {@link TimerWheel}. Anything printed while a sequence is still playing out, including the next prompt, is
+ * queued behind it so the order is kept.
+ * <p>
+ * The player can skip the rest of a sequence by pressing Enter, see {@link #skip()}.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class PacedOutput extends PrintStream {
+    private final SegmentedStream segments; // The stream which queues output behind pauses
+    private boolean pacingEnabled = true; // Flag for if pauses should hold back output, disabled for scripted runs
+    private long pausedMillis; // The total time output has been paused for
+
+    /**
+     * Constructs a paced output which writes to the given sink.
+     *
+     * @param sink Where the output is eventually written, such as the console or a connection.
+     */
+    public PacedOutput(OutputSink sink) {
+        this(new SegmentedStream(sink));
+    }
+
+    private PacedOutput(SegmentedStream segments) {
+        super(segments);
+        this.segments = segments;
+    }
+
+    /**
+     * Hands the output printed so far to the sink, unless it is waiting behind a pause. This does not take the
+     * stream's monitor as PrintStream's flush does, so a slow player does not pin the session's virtual thread.
+     */
+    @Override
+    public void flush() {
+        try {
+            segments.flush();
+        } catch (IOException e) {
+            setError();
+        }
+    }
+
+    /**
+     * Pauses the output for a number of seconds. Anything printed afterwards is held back until the pause is over.
+     *
+     * @param seconds The number of seconds to pause for.
+     */
+    public void pause(int seconds) {
+        if (!pacingEnabled) return;
+
+        flush(); // Make sure everything printed so far is ahead of the pause
+        segments.pause(seconds * 1000L);
+        pausedMillis += seconds * 1000L;
+    }
+
+    /**
+     * @return The total time output has been paused for, in milliseconds, which the player spends waiting
+     *         rather than the game spends working.
+     */
+    public long getPausedMillis() {
+        return pausedMillis;
+    }
+
+    /**
+     * Enables or disables pausing. While disabled, {@link #pause(int)} does nothing.
+     *
+     * @param pacingEnabled Whether pauses should hold back output.
+     */
+    public void setPacingEnabled(boolean pacingEnabled) {
+        this.pacingEnabled = pacingEnabled;
+        if (!pacingEnabled) {
+            skip(); // Nothing should be left waiting on a pause that will no longer happen
+        }
+    }
+
+    /**
+     * Sets the clock the pauses are timed by. This should be done before anything is paused.
+     *
+     * @param clock The clock.
+     */
+    public void setClock(GameClock clock) {
+        segments.setClock(clock);
+    }
+
+    /**
+     * Lets the pauses run their course if the clock is one which only moves on when asked, such as a
+     * {@link VirtualClock}. This is done before input is read, as if the player had waited for the output.
+     */
+    public void settle() {
+        segments.clock.settle();
+    }
+
+    /**
+     * Writes all output which is still waiting behind a pause straight away.
+     *
+     * @return true if there was a paced sequence in progress; false otherwise.
+     */
+    public boolean skip() {
+        return segments.skip();
+    }
+
+    /**
+     * Waits until all paced output has been written. This is used when a session ends.
+     */
+    public void drain() {
+        settle();
+        try {
+            segments.awaitIdle();
+        } catch (InterruptedException e) {
+            skip(); // Write everything now if the session is being shut down
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * An output stream which collects output in memory until it is flushed, when it is handed to the sink in one
+     * write. While a pause is pending, output is instead collected into segments that are released one at a time
+     * as their delays pass.
+     * <p>
+     * The state is guarded by a ReentrantLock rather than the stream's monitor, as a virtual thread which blocks
+     * inside a monitor, or waits on one, stays pinned to its carrier thread. The output to be written is taken
+     * out under that lock and written to the sink after it is released, so a slow player never holds it up.
+     * Writes to the sink take the send lock first, which keeps them in the order their output was taken.
+     */
+    private static class SegmentedStream extends OutputStream {
+        private static final int FLUSH_THRESHOLD = 64 * 1024; // Output is handed to the sink early if this much builds up
+
+        private final OutputSink sink; // Where the output is eventually written
+        private final ReentrantLock lock = new ReentrantLock(); // Guards the buffers, the segments and the clock
+        private final Condition idle = lock.newCondition(); // Signalled when the last pending segment is taken
+        private final ReentrantLock sendLock = new ReentrantLock(); // Held while output is taken and written to the sink
+        private final ArrayDeque<Segment> pending = new ArrayDeque<>(); // Segments waiting to be released, oldest first
+        private Buffer current = new Buffer(); // Output which is not behind a pause and has not been flushed
+        private GameClock clock = GameClock.system(); // The clock the pauses are timed by
+        private GameClock.Timeout timeout; // The scheduled release of the oldest segment
+
+        SegmentedStream(OutputSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            boolean full;
+            lock.lock();
+            try {
+                if (!pending.isEmpty()) {
+                    pending.peekLast().buffer.write(b);
+                    return;
+                }
+                current.write(b);
+                full = current.size() >= FLUSH_THRESHOLD;
+            } finally {
+                lock.unlock();
+            }
+            if (full) flush(); // Hand the output to the sink early if a lot of it has built up without a flush
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            boolean full;
+            lock.lock();
+            try {
+                if (!pending.isEmpty()) {
+                    pending.peekLast().buffer.write(b, off, len);
+                    return;
+                }
+                current.write(b, off, len);
+                full = current.size() >= FLUSH_THRESHOLD;
+            } finally {
+                lock.unlock();
+            }
+            if (full) flush();
+        }
+
+        /**
+         * Hands the output collected so far to the sink, unless it is waiting behind a pause.
+         */
+        @Override
+        public void flush() throws IOException {
+            sendLock.lock();
+            try {
+                Buffer taken;
+                lock.lock();
+                try {
+                    if (!pending.isEmpty() || current.size() == 0) return;
+                    taken = takeCurrent();
+                } finally {
+                    lock.unlock();
+                }
+                taken.sendTo(sink);
+            } finally {
+                sendLock.unlock();
+            }
+        }
+
+        /**
+         * Takes the output which is not behind a pause, leaving an empty buffer in its place.
+         * The lock must be held.
+         *
+         * @return The output.
+         */
+        private Buffer takeCurrent() {
+            Buffer taken = current;
+            current = new Buffer();
+            return taken;
+        }
+
+        /**
+         * Sets the clock the pauses are timed by.
+         *
+         * @param clock The clock.
+         */
+        void setClock(GameClock clock) {
+            lock.lock();
+            try {
+                this.clock = clock;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Starts a new segment which will be released the given time after the one before it.
+         *
+         * @param delayMillis The delay in milliseconds.
+         */
+        void pause(long delayMillis) {
+            lock.lock();
+            try {
+                pending.addLast(new Segment(delayMillis));
+                if (pending.size() == 1) {
+                    scheduleOldest();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Schedules the release of the oldest pending segment. The lock must be held.
+         */
+        private void scheduleOldest() {
+            Segment oldest = pending.peekFirst();
+            timeout = clock.schedule(() -> release(oldest), oldest.delayMillis);
+        }
+
+        /**
+         * Writes a segment once its delay has passed and schedules the next one.
+         *
+         * @param segment The segment which has come due.
+         */
+        private void release(Segment segment) {
+            sendLock.lock();
+            try {
+                lock.lock();
+                try {
+                    if (pending.peekFirst() != segment) return; // The segment was already written by a skip
+
+                    pending.removeFirst();
+                    if (pending.isEmpty()) {
+                        idle.signalAll();
+                    } else {
+                        scheduleOldest();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                sendQuietly(segment.buffer);
+            } finally {
+                sendLock.unlock();
+            }
+        }
+
+        /**
+         * Writes every pending segment immediately, in one write.
+         *
+         * @return true if there were pending segments; false otherwise.
+         */
+        boolean skip() {
+            sendLock.lock();
+            try {
+                Buffer taken;
+                lock.lock();
+                try {
+                    if (pending.isEmpty()) return false;
+
+                    timeout.cancel();
+                    while (!pending.isEmpty()) {
+                        Buffer buffer = pending.removeFirst().buffer;
+                        current.write(buffer.toByteArray(), 0, buffer.size());
+                    }
+                    taken = takeCurrent();
+                    idle.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                sendQuietly(taken);
+                return true;
+            } finally {
+                sendLock.unlock();
+            }
+        }
+
+        /**
+         * Waits until there are no pending segments and the last of them has been written to the sink.
+         *
+         * @throws InterruptedException If the thread is interrupted while waiting.
+         */
+        void awaitIdle() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (!pending.isEmpty()) {
+                    idle.await();
+                }
+            } finally {
+                lock.unlock();
+            }
+            sendLock.lockInterruptibly(); // The last segment may still be being written
+            sendLock.unlock();
+        }
+
+        /**
+         * Hands a buffer to the sink. Errors are ignored, as they mean the player has disconnected,
+         * which the session will notice when it next reads a command.
+         *
+         * @param buffer The buffer to write.
+         */
+        private void sendQuietly(Buffer buffer) {
+            try {
+                buffer.sendTo(sink);
+            } catch (IOException e) {
+                // The player has disconnected
+            }
+        }
+    }
+
+    /**
+     * A growable byte buffer which can hand its contents to a sink without copying them.
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+        /**
+         * Writes the contents of the buffer to the sink and empties the buffer.
+         *
+         * @param sink The sink to write to.
+         * @throws IOException If the sink cannot be written to.
+         */
+        void sendTo(OutputSink sink) throws IOException {
+            if (count == 0) return;
+
+            try {
+                sink.write(buf, 0, count);
+            } finally {
+                reset();
+            }
+        }
+    }
+
+    /**
+     * Output which is held back until a delay has passed.
+     */
+    private static class Segment {
+        private final long delayMillis; // The delay after the previous segment before this one is written
+        private final Buffer buffer = new Buffer(); // The output held back
+
+        Segment(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+    }
+}
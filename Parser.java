@@ -1,4 +1,4 @@
-import java.util.Scanner;
+import java.io.InputStream;
 
 /**
  * This parser reads user input and tries to interpret it as an "Adventure"
@@ -15,55 +15,130 @@ import java.util.Scanner;
  */
 public class Parser {
     private CommandWords commands;  // holds all valid command words
-    private Scanner reader;         // source of command input
+    private CommandTokenizer tokenizer; // source of command input
+    private Command command;        // the command filled in for each line
+    private Command answer;         // the words of an answer to a prompt
+    private PacedOutput out;        // destination for prompts
+    private boolean echo;           // whether input lines are written back out, for transcripts
+    private Journal journal;        // where input lines are recorded, if the session is being journalled
+    private World world;            // the session's world, which parse events are tagged with, if known
 
     /**
      * Create a parser to read from the terminal window.
      */
     public Parser() {
+        this(System.in, new PacedOutput(StreamSink.console()));
+    }
+
+    /**
+     * Create a parser to read from the given input, such as a network connection.
+     *
+     * @param in The stream commands are read from.
+     * @param out The stream prompts are written to.
+     */
+    public Parser(InputStream in, PacedOutput out) {
         commands = new CommandWords();
-        reader = new Scanner(System.in);
+        tokenizer = new CommandTokenizer(in);
+        command = new Command();
+        answer = new Command();
+        this.out = out;
     }
 
     /**
+     * Create a parser to read from the given input for a game session, writing prompts to the session's output.
+     *
+     * @param in The stream commands are read from.
+     * @param world The world of the session.
+     */
+    public Parser(InputStream in, World world) {
+        this(in, world.getOut());
+        this.world = world;
+    }
+
+    /**
+     * Returns the next command from the user.
+     * <p>
+     * The same Command is filled in and returned for every line, so it is only valid until the next call.
+     *
      * @return The next command from the user.
      */
     public Command getCommand() {
-        String inputLine;   // will hold the full input line
-        String word1 = null;
-        String word2 = null;
-        String word3 = null;
-        String word4 = null;
-
-        System.out.print("> ");     // print prompt
-
-        inputLine = reader.nextLine().toLowerCase().trim();
-
-        // Find up to two words on the line.
-        Scanner tokenizer = new Scanner(inputLine);
-        if (tokenizer.hasNext()) {
-            word1 = tokenizer.next();      // get first word
-            if (tokenizer.hasNext()) {
-                word2 = tokenizer.next();      // get second word
-                if (tokenizer.hasNext()) {
-                    word3 = tokenizer.next();      // get third word
-                    if (tokenizer.hasNext()) {
-                        word4 = tokenizer.next();  // get fourth word
-                    }
-                }
-            }
+        out.print("> ");     // print prompt
+        out.flush();
+
+        readLine();
+
+        // Only the parsing is timed, not waiting for the line
+        GameEvents.CommandParse event = new GameEvents.CommandParse();
+        event.begin();
+
+        // Split the line into words, as many as the command can hold.
+        command.clear();
+        tokenizer.tokenize(command);
+
+        // Now check whether this word is known. If so, resolve it and any
+        // subcommand to their opcodes. If not, mark the command as unknown
+        // by removing its command word.
+        commands.resolve(command);
+
+        event.end();
+        GameEvents.commitParse(event, world, command.isUnknown() ? tokenizer.getLine() : command.getCommandWord());
+        return command;
+    }
+
+    /**
+     * Reads the next line of input into the tokenizer.
+     * <p>
+     * Under a virtual clock, any paced sequence is played out first, as if the player had waited for it.
+     * Otherwise, if a paced sequence is still being written, the rest of it is written straight away. A blank
+     * line in that case only skips the sequence, so the next line is read instead.
+     */
+    private void readLine() {
+        out.settle();
+        tokenizer.readLine();
+        while (out.skip() && tokenizer.isBlank()) {
+            tokenizer.readLine();
         }
 
-        // Now check whether this word is known. If so, create a command
-        // with it. If not, create a "null" command (for unknown command).
-        if(commands.isCommand(word1)) {
-            return new Command(word1, word2, word3, word4);
+        if (journal != null) {
+            journal.recordLine(tokenizer.getLine());
         }
-        else {
-            return new Command(null, word2, word3, word4); 
+        if (echo) {
+            out.println(tokenizer.getLine());
         }
     }
 
+    /**
+     * Reads the next line of input and returns it if it is a single word.
+     *
+     * @return The word on the line, in lowercase, or null if the line did not have exactly one word.
+     */
+    private String readSingleWord() {
+        readLine();
+        answer.clear();
+        tokenizer.tokenize(answer);
+        return answer.getWordCount() == 1 ? answer.getCommandWord() : null;
+    }
+
+    /**
+     * Sets whether each line read is written back to the output after the prompt. This is used for
+     * scripted runs, so the transcript shows the commands alongside their results.
+     *
+     * @param echo Whether input lines should be echoed.
+     */
+    public void setEcho(boolean echo) {
+        this.echo = echo;
+    }
+
+    /**
+     * Sets the journal each line read is recorded in.
+     *
+     * @param journal The journal, or null to stop recording.
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
     /**
      * Prompts the user for a 'yes' or 'no' input and returns true for yes and false for no.
      * <p>
@@ -73,19 +148,20 @@ public class Parser {
      * @return true if the user inputs 'yes' or 'y'; false if the user inputs 'no' or 'n'.
      */
     public boolean getYesOrNo() {
-        String inputLine; // will hold the full input line
+        String inputWord; // will hold the word entered
 
         while (true) {
-            System.out.print("> "); // print prompt
+            out.print("> "); // print prompt
+            out.flush();
 
-            inputLine = reader.nextLine().trim().toLowerCase();
+            inputWord = readSingleWord();
 
-            if (inputLine.equals("yes") || inputLine.equals("y")) {
+            if ("yes".equals(inputWord) || "y".equals(inputWord)) {
                 return true;
-            } else if (inputLine.equals("no") || inputLine.equals("n")) {
+            } else if ("no".equals(inputWord) || "n".equals(inputWord)) {
                 return false;
             } else {
-                System.out.println("Invalid input. Please enter 'yes' or 'no'.");
+                out.println("Invalid input. Please enter 'yes' or 'no'.");
             }
         }
     }
@@ -99,26 +175,38 @@ public class Parser {
      * @return The selected difficulty level: 'easy', 'medium', or 'hard'.
      */
     public String getDifficulty() {
-        String inputLine; // will hold the full input line
+        String inputWord; // will hold the word entered
 
         while (true) {
-            System.out.print("> "); // print prompt
+            out.print("> "); // print prompt
+            out.flush();
 
-            inputLine = reader.nextLine().trim().toLowerCase(); // read user input, trim whitespace, and convert to lowercase
+            inputWord = readSingleWord(); // read user input as a single lowercase word
 
-            switch (inputLine) {
+            switch (inputWord == null ? "" : inputWord) {
                 case "easy" -> { return "easy"; }
                 case "medium" -> { return "medium"; }
                 case "hard" -> { return "hard"; }
-                default -> System.out.println("Invalid input. Please enter 'easy', 'medium', or 'hard'."); // prompt user for valid input
+                default -> out.println("Invalid input. Please enter 'easy', 'medium', or 'hard'."); // prompt user for valid input
             }
         }
     }
 
+    /**
+     * Adds a command word, so it is recognised as a command.
+     *
+     * @param word The command word.
+     * @param description The description of the command shown by help.
+     * @return The opcode of the command word.
+     */
+    public int addCommand(String word, String description) {
+        return commands.addCommand(word, description);
+    }
+
     /**
      * Print out a list of valid command words.
      */
     public void showCommands() {
-        commands.showAll();
+        commands.showAll(out);
     }
 }
@@ -1,6 +1,7 @@
+import java.io.PrintStream;
+import java.util.EnumMap;
 import java.util.Set;
-import java.util.HashMap;
-import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -9,7 +10,11 @@ import java.util.stream.Collectors;
  * <p>
  * A "Room" represents one location in the scenery of the game.  It is 
  * connected to other rooms via exits.  For each existing exit, the room 
- * stores a reference to the neighboring room.
+ * stores a reference to the neighboring room, by the direction of the exit.
+ * <p>
+ * The room's details are rendered once and kept until something in them changes. Each section
+ * (the name, the exits, the items and the characters) is rendered separately, and only the
+ * section which has changed is rendered again, so displaying an unchanged room is a single write.
  * 
  * @author  Michael Kölling, David J. Barnes, Mahdi Razzaque
  * @version 28.11.2024
@@ -18,24 +23,37 @@ import java.util.stream.Collectors;
 public class Room 
 {
     private String name, description; // The name and description of the room
-    private HashMap<String, Room> exits; // Stores exits of this room
+    private EnumMap<Direction, Room> exits; // Stores exits of this room, in the order the directions are declared
     private nonPlayerInventory roomInventory; // The inventory associated with the room
-    private ArrayList<Character> characters = new ArrayList<>(); // List of characters in the room
+    private EnumMap<Direction, lockedDoor> lockedDoors; // The locked doors on the room's exits, by direction, or null if there are none
+    private LinkedHashSet<Character> characters = new LinkedHashSet<>(); // The characters in the room, in the order they arrived, so any can be removed at once
+    private PrintStream out; // The stream the room's details are written to
+    private int id; // The id the world gave the room, used to refer to it in save files
+
+    private String renderedName; // The boxed name of the room, rendered once
+    private String renderedExits; // The exits of the room, or null if they have changed since they were rendered
+    private Direction[] exitDirections; // The directions of the exits, or null if they have changed since they were listed
+    private String renderedItems; // The items in the room, or null if they have not been rendered
+    private int renderedItemsVersion; // The version of the room inventory when the items were rendered
+    private String renderedCharacters; // The characters in the room, or null if they have changed since they were rendered
+    private String renderedDetails; // All the room's details, or null if a section has changed since they were rendered
 
     /**
      * Creates a room with the specified name and description. Initially, it has no exits.
      * The description is something like "a kitchen" or "an open courtyard".
      *
+     * @param world The world the room belongs to.
      * @param name The room's name.
      * @param description The room's description.
      */
-    public Room(String name, String description) {
+    public Room(World world, String name, String description) {
         this.name = name;
         this.description = description;
-        exits = new HashMap<>();
-        roomInventory = new nonPlayerInventory(name, this);
+        exits = new EnumMap<>(Direction.class);
+        roomInventory = new nonPlayerInventory(world, name, this);
+        out = world.getOut();
 
-        Game.allUnlockedRooms.add(this); // Add the room to the list of unlocked rooms
+        id = world.addRoom(this); // Add the room to the list of unlocked rooms
     }
     
     /**
@@ -44,8 +62,32 @@ public class Room
      * @param direction The direction of the exit.
      * @param neighbor  The room to which the exit leads.
      */
-    public void setExit(String direction, Room neighbor) {
+    public void setExit(Direction direction, Room neighbor) {
         exits.put(direction, neighbor);
+        renderedExits = null;
+        exitDirections = null;
+        renderedDetails = null;
+    }
+
+    /**
+     * Locks the exit of this room in the given direction.
+     *
+     * @param direction The direction of the exit.
+     * @param door The locked door on the exit.
+     */
+    public void setLockedDoor(Direction direction, lockedDoor door) {
+        if (lockedDoors == null) lockedDoors = new EnumMap<>(Direction.class);
+        lockedDoors.put(direction, door);
+    }
+
+    /**
+     * Retrieves the locked door on the exit in the given direction.
+     *
+     * @param direction The direction of the exit.
+     * @return The locked door, or null if the exit is not locked.
+     */
+    public lockedDoor getLockedDoor(Direction direction) {
+        return lockedDoors == null ? null : lockedDoors.get(direction);
     }
 
     /**
@@ -57,15 +99,35 @@ public class Room
         return name;
     }
 
+    /**
+     * Retrieves the id of the room, which is unique within its world.
+     *
+     * @return The id of the room.
+     */
+    public int getId() {
+        return id;
+    }
+
     /**
      * Displays the name of the room in a formatted way.
      * Converts the name to title case, formats it with a box
      * and then outputs it.
      */
     public void displayName() {
-        String titleCase = Utils.toTitleCase(name); // Convert the room name to title case
-        String boxedName = Utils.boxString(titleCase); // Format the title case name with a box
-        System.out.println(boxedName); // Print the formatted name
+        out.println(getBoxedName()); // Print the formatted name
+    }
+
+    /**
+     * Returns the name of the room in title case, formatted with a box. It is only formatted the first time.
+     *
+     * @return The boxed name of the room.
+     */
+    private String getBoxedName() {
+        if (renderedName == null) {
+            String titleCase = Utils.toTitleCase(name); // Convert the room name to title case
+            renderedName = Utils.boxString(titleCase); // Format the title case name with a box
+        }
+        return renderedName;
     }
 
     /**
@@ -92,41 +154,57 @@ public class Room
      * @return Details of the room's exits.
      */
     private String getExitString() {
-        String returnString = "Exits:";
-        Set<String> keys = exits.keySet();
-        for(String exit : keys) {
-            returnString += " " + exit;
+        if (renderedExits == null) {
+            StringBuilder exitString = new StringBuilder("Exits:");
+            Set<Direction> keys = exits.keySet();
+            for(Direction exit : keys) {
+                exitString.append(' ').append(exit);
+            }
+            renderedExits = exitString.toString();
         }
-        return returnString;
+        return renderedExits;
     }
 
     /**
      * Retrieves the exits of the room.
      * <p>
-     * This method returns a HashMap containing the exits of the room,
+     * This method returns an EnumMap containing the exits of the room,
      * where the keys are the directions and the values are the neighboring rooms.
      * <p>
-     * @return A HashMap containing the exits of the room.
+     * @return An EnumMap containing the exits of the room.
      */
-    public HashMap<String, Room> getExits() {
+    public EnumMap<Direction, Room> getExits() {
         return exits;
     }
 
+    /**
+     * Returns the direction of one of the room's exits, so a random exit can be chosen without copying them.
+     *
+     * @param index The index of the exit, from 0 up to, but not including, the number of exits.
+     * @return The direction of the exit.
+     */
+    public Direction getExitDirection(int index) {
+        if (exitDirections == null) {
+            exitDirections = exits.keySet().toArray(new Direction[0]);
+        }
+        return exitDirections[index];
+    }
+
     /**
      * Return the room that is reached if we go from this room in direction
      * "direction". If there is no room in that direction, return null.
      * @param direction The exit's direction.
      * @return The room in the given direction.
      */
-    public Room getExit(String direction) {
+    public Room getExit(Direction direction) {
         return exits.get(direction);
     }
 
     /**
-     * Retrieves the list of characters currently in the room.
-     * @return An ArrayList of characters currently in the room.
+     * Retrieves the characters currently in the room.
+     * @return The characters currently in the room, in the order they arrived.
      */
-    public ArrayList getCharacters() {
+    public Set<Character> getCharacters() {
         return characters;
     }
 
@@ -139,11 +217,24 @@ public class Room
      * <p>
      */
     public void displayCharacters() {
-        if (characters.isEmpty()) { // Check if there are no characters in the room
-            System.out.println("Characters: None"); // Print message indicating no characters are present
-        } else {
-            System.out.println("Characters: " + characters.stream().map(character -> character.getName()).collect(Collectors.joining(", "))); // Print names of characters in the room
+        out.println(getCharacterString());
+    }
+
+    /**
+     * Returns the line listing the characters in the room, for example "Characters: Butler, Cat".
+     * It is only rendered again after a character has entered or left the room.
+     *
+     * @return The characters in the room, or "Characters: None" if there are none.
+     */
+    private String getCharacterString() {
+        if (renderedCharacters == null) {
+            if (characters.isEmpty()) { // Check if there are no characters in the room
+                renderedCharacters = "Characters: None"; // Message indicating no characters are present
+            } else {
+                renderedCharacters = "Characters: " + characters.stream().map(character -> character.getName()).collect(Collectors.joining(", ")); // Names of characters in the room
+            }
         }
+        return renderedCharacters;
     }
 
     /**
@@ -156,22 +247,24 @@ public class Room
      */
     public void displayCharacterSelection() {
         if (characters.isEmpty()) { // Check if there are no characters in the room
-            System.out.println("Characters: None"); // Output message indicating no characters are present
+            out.println("Characters: None"); // Output message indicating no characters are present
             return;
         }
 
-        System.out.println("Characters: " + characters.stream()
+        out.println("Characters: " + characters.stream()
                 .map(character -> character.getName().toLowerCase().replaceAll(" ", "_")) // Format names for selection
                 .collect(Collectors.joining(", "))); // Join formatted names with commas
     }
 
     /**
-     * This method adds the specified character to the arrayList of characters present in the room.
+     * This method adds the specified character to the characters present in the room.
      *
      * @param character The character to be added.
      */
     public void addCharacter(Character character) {
         characters.add(character);
+        renderedCharacters = null;
+        renderedDetails = null;
     }
 
     /**
@@ -180,7 +273,10 @@ public class Room
      * @param character The character to be removed.
      */
     public void removeCharacter(Character character) {
-        characters.remove(character); // Remove the character from the list of characters in the room
+        if (characters.remove(character)) { // Remove the character from the list of characters in the room
+            renderedCharacters = null;
+            renderedDetails = null;
+        }
     }
 
     /**
@@ -215,7 +311,22 @@ public class Room
      * Displays the current room inventory.
      */
     public void displayRoomInventory() {
-        roomInventory.displayInventory("room");
+        out.println(getItemString());
+    }
+
+    /**
+     * Returns the line listing the items in the room, for example "Items: Coin: 1".
+     * It is only rendered again after the room inventory has changed.
+     *
+     * @return The items in the room.
+     */
+    private String getItemString() {
+        if (renderedItems == null || renderedItemsVersion != roomInventory.getVersion()) {
+            renderedItems = roomInventory.getRoomListing();
+            renderedItemsVersion = roomInventory.getVersion();
+            renderedDetails = null;
+        }
+        return renderedItems;
     }
 
     /**
@@ -249,7 +360,7 @@ public class Room
      *
      * @param itemsToAdd The items to be added to the room inventory.
      */
-    public void addAllItemsToRoomInventory(HashMap<Item, Integer> itemsToAdd) {
+    public void addAllItemsToRoomInventory(ItemCounts itemsToAdd) {
         roomInventory.addAll(itemsToAdd);
     }
 
@@ -260,10 +371,15 @@ public class Room
      * the room's inventory, and the characters present in the room.
      */
     public void displayRoomDetails() {
-        displayName(); // Print the name of the room
-        System.out.println(getLongDescription()); // Print the long description of the room
-        displayRoomInventory(); // Display the room's inventory
-        displayCharacters(); // Display the characters present in the room
+        getItemString(); // Notice any change to the room's inventory
+        if (renderedDetails == null) {
+            String newLine = System.lineSeparator();
+            renderedDetails = getBoxedName() + newLine // The name of the room
+                    + getLongDescription() + newLine // The long description of the room
+                    + getItemString() + newLine // The room's inventory
+                    + getCharacterString() + newLine; // The characters present in the room
+        }
+        out.print(renderedDetails);
     }
 }
 
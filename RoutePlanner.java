@@ -0,0 +1,170 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The RoutePlanner class finds the shortest route between any two rooms of a manor, for the "go to" command.
+ * <p>
+ * The rooms and exits are taken from a {@link WorldTemplate}, so the planner is built once for each template and
+ * shared by every game played in it. A breadth first search from a room finds the shortest route from it to every
+ * other room, recording the exit each room was first reached through; the routes are read back from these exits.
+ * The searches are kept in a table with a row for each room, so the routes from a room are only searched for once
+ * and the table fills in as rooms are travelled from, until it holds the routes between every pair of rooms.
+ * <p>
+ * A locked door can only be passed by a player holding its key, so the rooms that can be reached depend on the keys
+ * held. There is a separate table for each set of doors that are open to the player, which for a manor with a few
+ * locked doors is only a handful of tables.
+ * <p>
+ * The tables are shared by every game and never emptied, so they are bounded: they hold at most
+ * {@value #CACHE_BUDGET_BYTES} bytes of rows between them, and there are at most {@value #MAX_TABLES} of them.
+ * A small manor fits entirely, while in a manor of tens of thousands of rooms only the first few hundred rooms
+ * travelled from are kept. A search which does not fit is made again each time it is needed, which takes
+ * about a millisecond in a manor of 30,000 rooms.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class RoutePlanner {
+    private static final int UNREACHED = -1; // The exit recorded for a room a search has not reached
+    private static final int SOURCE = -2; // The exit recorded for the room a search started from
+    private static final long CACHE_BUDGET_BYTES = 64L * 1024 * 1024; // The most memory the kept rows take up between them
+    private static final int MAX_TABLES = 16; // The most sets of open doors that tables are kept for
+
+    private final int[] exitStart; // Where each room's exits start in the exit arrays, with one extra entry for the end
+    private final Direction[] exitDirections; // The direction of each exit
+    private final int[] exitRooms; // The room each exit leads to
+    private final int[] exitFrom; // The room each exit leads from
+    private final int[] exitDoors; // The locked door on each exit, or -1 if it is not locked
+    private final BitSet allDoors = new BitSet(); // Every locked door, the open doors of routes that may pass through any door
+    private final HashMap<String, Integer> roomIndexes = new HashMap<>(); // The index of each room, by its name in lower case
+
+    // The table of searches for each set of open doors, with a row for each room once it has been searched from
+    private final ConcurrentHashMap<BitSet, AtomicReferenceArray<int[]>> tables = new ConcurrentHashMap<>();
+    private final int maxRows; // The most rows kept across every table
+    private final AtomicInteger rows = new AtomicInteger(); // The number of rows kept across every table
+
+    /**
+     * Constructs a planner for the rooms and exits of a manor.
+     *
+     * @param roomNames The name of each room.
+     * @param exitStart Where each room's exits start in the exit arrays, with one extra entry for the end.
+     * @param exitDirections The direction of each exit.
+     * @param exitRooms The room each exit leads to.
+     * @param doorExits The exit each locked door is on, by the door's index.
+     */
+    public RoutePlanner(String[] roomNames, int[] exitStart, Direction[] exitDirections, int[] exitRooms, int[] doorExits) {
+        this.exitStart = exitStart;
+        this.exitDirections = exitDirections;
+        this.exitRooms = exitRooms;
+
+        exitFrom = new int[exitRooms.length];
+        for (int room = 0; room < roomNames.length; room++) {
+            Arrays.fill(exitFrom, exitStart[room], exitStart[room + 1], room);
+            roomIndexes.put(roomNames[room].toLowerCase(), room);
+        }
+
+        exitDoors = new int[exitRooms.length];
+        Arrays.fill(exitDoors, -1);
+        for (int door = 0; door < doorExits.length; door++) {
+            exitDoors[doorExits[door]] = door;
+            allDoors.set(door);
+        }
+
+        maxRows = (int) Math.min(Integer.MAX_VALUE, CACHE_BUDGET_BYTES / (4L * Math.max(1, roomNames.length)));
+    }
+
+    /**
+     * Finds a room by name, ignoring case.
+     *
+     * @param name The name of the room.
+     * @return The index of the room, or -1 if there is no room with that name.
+     */
+    public int indexOfRoom(String name) {
+        return roomIndexes.getOrDefault(name.toLowerCase(), -1);
+    }
+
+    /**
+     * Finds the shortest route between two rooms.
+     *
+     * @param from The index of the room the route starts in.
+     * @param to The index of the room the route ends in.
+     * @param openDoors The indexes of the locked doors the route may pass through, or null if it may pass through every door.
+     * @return The directions to take from each room along the route, which is empty if the rooms are the same,
+     *         or null if there is no route.
+     */
+    public Direction[] route(int from, int to, BitSet openDoors) {
+        int[] reachedBy = search(from, openDoors);
+        if (reachedBy[to] == UNREACHED) return null;
+
+        int length = 0;
+        for (int room = to; reachedBy[room] != SOURCE; room = exitFrom[reachedBy[room]]) {
+            length++;
+        }
+
+        Direction[] directions = new Direction[length];
+        for (int room = to; reachedBy[room] != SOURCE; room = exitFrom[reachedBy[room]]) {
+            directions[--length] = exitDirections[reachedBy[room]];
+        }
+        return directions;
+    }
+
+    /**
+     * Returns the search from a room with the given doors open, searching for it the first time it is needed and
+     * keeping it if the tables have room. Two games may search from the same room at once, which only does the
+     * same work twice.
+     *
+     * @return The exit each room was first reached through.
+     */
+    private int[] search(int from, BitSet openDoors) {
+        if (openDoors == null) openDoors = allDoors;
+
+        AtomicReferenceArray<int[]> table = tables.get(openDoors);
+        if (table == null && tables.size() < MAX_TABLES) {
+            // The set is copied, as the caller may change it once it has its route. Two games adding tables at
+            // once may go one or two over the limit, which is harmless.
+            table = tables.computeIfAbsent((BitSet) openDoors.clone(), doors -> new AtomicReferenceArray<>(exitStart.length - 1));
+        }
+        if (table == null) return breadthFirstSearch(from, openDoors);
+
+        int[] reachedBy = table.get(from);
+        if (reachedBy == null) {
+            reachedBy = breadthFirstSearch(from, openDoors);
+            if (rows.incrementAndGet() > maxRows || !table.compareAndSet(from, null, reachedBy)) {
+                rows.decrementAndGet(); // The tables are full, or another game has kept the same row
+            }
+        }
+        return reachedBy;
+    }
+
+    /**
+     * Searches outwards from a room, one exit at a time, skipping locked doors which are not open.
+     *
+     * @return The exit each room was first reached through.
+     */
+    private int[] breadthFirstSearch(int from, BitSet openDoors) {
+        int[] reachedBy = new int[exitStart.length - 1];
+        Arrays.fill(reachedBy, UNREACHED);
+        reachedBy[from] = SOURCE;
+
+        int[] queue = new int[reachedBy.length];
+        int head = 0, tail = 0;
+        queue[tail++] = from;
+        while (head < tail) {
+            int room = queue[head++];
+            for (int exit = exitStart[room]; exit < exitStart[room + 1]; exit++) {
+                int door = exitDoors[exit];
+                if (door >= 0 && !openDoors.get(door)) continue;
+
+                int next = exitRooms[exit];
+                if (reachedBy[next] == UNREACHED) {
+                    reachedBy[next] = exit;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return reachedBy;
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+
+/**
+ * The ScriptedRun class plays a game from a script of commands with no one at the keyboard.
+ * <p>
+ * The settings which are normally asked for at the start of the game are given up front, the game runs
+ * under a {@link VirtualClock} so dialog and narration are written without waiting out their pauses, and
+ * each command is echoed into the transcript after its prompt. As nothing sleeps, many walkthroughs can be
+ * run back to back in one JVM, which makes scripted runs suitable for regression and capacity testing.
+ * Given a seed, a run makes the same random choices every time, so its transcript is reproducible.
+ * <p>
+ * A run can be recorded in a {@link Journal}, and a journalled session, whether scripted or played, can be
+ * replayed in the same way with {@link #replay(Journal.Replay, OutputStream)}.
+ * <p>
+ * The result of a run is one of the exit codes {@link #EXIT_WON}, {@link #EXIT_QUIT} or {@link #EXIT_INCOMPLETE}.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class ScriptedRun {
+    public static final int EXIT_WON = 0; // The script escaped the manor
+    public static final int EXIT_QUIT = 1; // The script quit the game
+    public static final int EXIT_INCOMPLETE = 2; // The script ran out of commands before the game ended
+
+    private boolean mapEnabled; // Whether the map is enabled
+    private String difficulty; // The random character movement difficulty, or null if it is disabled
+    private Path journalFile; // The file the run is journalled in, or null if it is not journalled
+    private Long seed; // The seed of the run's random choices, or null for a different seed each run
+
+    /**
+     * Constructs a scripted run with the given game settings.
+     *
+     * @param mapEnabled Whether the map is enabled.
+     * @param difficulty The difficulty of random character movement ('easy', 'medium' or 'hard'),
+     *                   or null to disable random character movement.
+     */
+    public ScriptedRun(boolean mapEnabled, String difficulty) {
+        this.mapEnabled = mapEnabled;
+        this.difficulty = difficulty;
+    }
+
+    /**
+     * Sets the file the run is recorded in, so that it can be replayed later.
+     *
+     * @param journalFile The journal file, or null to not journal the run.
+     */
+    public void setJournalFile(Path journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * Sets the seed of the run's random choices, such as characters wandering, so that the run is reproducible.
+     *
+     * @param seed The seed, or null for a different seed each run.
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Plays a new game using the commands in the script, one per line.
+     *
+     * @param script The stream the commands are read from.
+     * @param transcript The stream the game's output is written to.
+     * @return The exit code of the run.
+     * @throws IOException If the journal cannot be written.
+     */
+    public int run(InputStream script, OutputStream transcript) throws IOException {
+        Game game = new Game(script, new StreamSink(transcript));
+        game.presetGameValues(mapEnabled, difficulty);
+        game.setClock(new VirtualClock());
+        if (seed != null) game.setSeed(seed);
+        game.getParser().setEcho(true);
+
+        if (journalFile == null) {
+            return play(game);
+        }
+        try (Journal journal = new Journal(journalFile)) {
+            game.setJournal(journal);
+            return play(game);
+        }
+    }
+
+    /**
+     * Replays a journalled session, giving the game the lines and random choices recorded in the journal.
+     *
+     * @param replay The journal to replay.
+     * @param transcript The stream the game's output is written to.
+     * @return The exit code of the replay. A session which was still being played when it was journalled is incomplete.
+     */
+    public static int replay(Journal.Replay replay, OutputStream transcript) {
+        StringBuilder lines = new StringBuilder();
+        for (String line : replay.getLines()) {
+            lines.append(line).append('\n');
+        }
+
+        Game game = new Game(new ByteArrayInputStream(lines.toString().getBytes(StandardCharsets.UTF_8)), new StreamSink(transcript));
+        game.replay(replay);
+        game.getParser().setEcho(true);
+        return play(game);
+    }
+
+    /**
+     * Plays the game until it ends or runs out of input.
+     *
+     * @param game The game to play.
+     * @return The exit code of the run.
+     */
+    private static int play(Game game) {
+        try {
+            game.play();
+        } catch (NoSuchElementException e) {
+            return EXIT_INCOMPLETE; // The script ended without quitting or winning
+        }
+        return game.isGameWon() ? EXIT_WON : EXIT_QUIT;
+    }
+}
@@ -0,0 +1,36 @@
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A StreamSink writes a session's output to an output stream, such as the console or a network connection.
+ * <p>
+ * Every batch is written and flushed straight away, so the player sees each command's output as soon as it is complete.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class StreamSink implements OutputSink {
+    private OutputStream stream; // The stream the output is written to
+
+    /**
+     * Constructs a sink which writes to the given stream.
+     *
+     * @param stream The stream the output is written to.
+     */
+    public StreamSink(OutputStream stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * @return A sink which writes to the console.
+     */
+    public static StreamSink console() {
+        return new StreamSink(System.out);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        stream.write(bytes, offset, length);
+        stream.flush();
+    }
+}
@@ -0,0 +1,160 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The TimerWheel class is a hashed timer wheel used to run short delayed tasks, such as paced dialog.
+ * <p>
+ * A single daemon thread advances the wheel one bucket per tick and runs every task which has come due.
+ * Scheduling a task only adds it to a queue, so a game session never has to hold a thread while it waits.
+ * Due tasks are handed to a virtual thread so that a slow connection cannot hold up the wheel for everyone else.
+ * <p>
+ * All sessions in the JVM share the wheel returned by {@link #shared()}, which is their {@link GameClock#system()} clock.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class TimerWheel implements GameClock {
+    private static final TimerWheel SHARED = new TimerWheel(50, 512); // The wheel shared by all sessions
+
+    private final long tickMillis; // The length of one tick in milliseconds
+    private final long startNanos = System.nanoTime(); // The time the wheel was created, which its clock counts from
+    private final ArrayDeque<Timeout>[] buckets; // The tasks waiting in each bucket of the wheel
+    private final ConcurrentLinkedQueue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>(); // Tasks waiting to be placed on the wheel
+    private long tick; // The number of ticks since the wheel started
+
+    /**
+     * Constructs a timer wheel and starts its worker thread.
+     *
+     * @param tickMillis The length of one tick in milliseconds.
+     * @param bucketCount The number of buckets on the wheel.
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, int bucketCount) {
+        this.tickMillis = tickMillis;
+        buckets = (ArrayDeque<Timeout>[]) new ArrayDeque<?>[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+
+        Thread worker = new Thread(this::run, "timer-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Returns the timer wheel shared by all game sessions.
+     *
+     * @return The shared timer wheel.
+     */
+    public static TimerWheel shared() {
+        return SHARED;
+    }
+
+    /**
+     * Schedules a task to run after the given delay. The delay is rounded up to a whole number of ticks.
+     *
+     * @param task The task to run.
+     * @param delayMillis The delay in milliseconds.
+     * @return A handle which can be used to cancel the task.
+     */
+    @Override
+    public Timeout schedule(Runnable task, long delayMillis) {
+        Timeout timeout = new Timeout(task, Math.max(1, (delayMillis + tickMillis - 1) / tickMillis));
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return The time in milliseconds since the wheel was created.
+     */
+    @Override
+    public long millis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Does nothing, as tasks on the wheel come due in real time.
+     */
+    @Override
+    public void settle() {
+    }
+
+    /**
+     * Advances the wheel once per tick until the JVM exits.
+     */
+    private void run() {
+        long startTime = System.nanoTime();
+        while (true) {
+            long nextTick = startTime + TimeUnit.MILLISECONDS.toNanos(tickMillis * (tick + 1));
+            long sleepNanos = nextTick - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+
+            placeNewTimeouts();
+            expireBucket(buckets[(int) (tick % buckets.length)]);
+            tick++;
+        }
+    }
+
+    /**
+     * Moves newly scheduled tasks into the bucket in which they will come due.
+     */
+    private void placeNewTimeouts() {
+        Timeout timeout;
+        while ((timeout = newTimeouts.poll()) != null) {
+            if (timeout.cancelled) continue;
+
+            // The current bucket is expired straight after this, so a task due in n ticks is placed n - 1 buckets on
+            long ticksFromNow = timeout.ticks - 1;
+            timeout.rounds = ticksFromNow / buckets.length;
+            buckets[(int) ((tick + ticksFromNow) % buckets.length)].add(timeout);
+        }
+    }
+
+    /**
+     * Runs every task in the bucket which has come due and counts down the rest by one rotation.
+     *
+     * @param bucket The bucket for the current tick.
+     */
+    private void expireBucket(ArrayDeque<Timeout> bucket) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.cancelled) {
+                iterator.remove();
+            } else if (timeout.rounds == 0) {
+                iterator.remove();
+                Thread.startVirtualThread(timeout.task);
+            } else {
+                timeout.rounds--;
+            }
+        }
+    }
+
+    /**
+     * A task which has been scheduled on the wheel.
+     */
+    public static class Timeout implements GameClock.Timeout {
+        private final Runnable task; // The task to run when the timeout comes due
+        private final long ticks; // The number of ticks until the task is due
+        private long rounds; // The number of full rotations of the wheel left before the task is due
+        private volatile boolean cancelled; // Flag for if the task should no longer run
+
+        private Timeout(Runnable task, long ticks) {
+            this.task = task;
+            this.ticks = ticks;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -1,7 +1,11 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.lang.Character;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Collection of static functions which are used throughout the program
@@ -30,20 +34,6 @@ public class Utils {
         return titleCase.toString().trim();
     }
 
-    /**
-     * Concatenates the name of the room (in snake case and lowercase) and the direction string
-     *
-     * @param room The room object to fetch the name of
-     * @param direction The direction string
-     * @return The concatenated string of the name of the room (in snake case and lowercase) and the direction string
-     */
-    public static String roomDirToSnake(Room room, String direction) {
-        if (room == null || direction == null)   //Returns null if either of the parameters are null
-            return null;
-
-        return room.getName().replaceAll(" ", "_").toLowerCase() + direction;
-    }
-
     /**
      * Takes an input string and converts it to snake case by replacing spaces with underscores
      * and converting the string to lowercase.
@@ -92,30 +82,20 @@ public class Utils {
     }
 
     /**
-     * Removes all items with a quantity of zero from the inventory.
-     * <p>
-     * This method iterates through the inventory and removes any entries
-     * where the item's quantity is zero.
-     *
-     * @param inventory The inventory from which items with zero quantity will be removed.
-     */
-    public static void removeZeroQuantityItems(HashMap<Item, Integer> inventory) {
-        inventory.entrySet().removeIf(entry -> entry.getValue() == 0);
-    }
-
-    /**
-     * Creates a delay for a specified number of seconds.
+     * Opens one of the game's data files, such as world.json, for reading as UTF-8.
      * <p>
-     * This method delays the program's execution for the given number of seconds.
+     * The file is looked for on the classpath first, so it can be packaged with the game,
+     * and then in the working directory.
      *
-     * @param seconds The number of seconds to pause.
+     * @param name The name of the file.
+     * @return A reader for the file.
+     * @throws IOException If the file cannot be found or opened.
      */
-    public static void waitSeconds(int seconds) {
-        try {
-            TimeUnit.SECONDS.sleep(seconds);
-        } catch (InterruptedException e) {
-            System.out.println("An error occurred!");
-            e.printStackTrace();
+    public static Reader openDataFile(String name) throws IOException {
+        InputStream in = Utils.class.getResourceAsStream("/" + name);
+        if (in == null) {
+            in = new FileInputStream(name);
         }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
     }
 }
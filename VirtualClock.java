@@ -0,0 +1,110 @@
+import java.util.PriorityQueue;
+
+/**
+ * The VirtualClock class is a game clock under which time only moves on when the session waits for it.
+ * <p>
+ * Delayed tasks, such as the release of paced dialog, are queued rather than given to a timer thread. When
+ * the session waits for input or ends, the clock is settled: it jumps straight to each task's due time in
+ * turn and runs it on the session's own thread. A session with paced output therefore runs at full speed,
+ * its tasks always run in the same order, and the clock still shows how long the session would have taken.
+ * Repeating tasks, such as a simulation tick, run whenever they come due along the way, but never keep the
+ * clock moving on by themselves, so settling ends once every one-off task has run.
+ * <p>
+ * Together with a seeded world, see {@link World#setSeed(long)}, this makes a whole session reproducible.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class VirtualClock implements GameClock {
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>(); // Tasks waiting to come due, soonest first
+    private long now; // The current virtual time in milliseconds
+    private long scheduled; // The number of tasks ever scheduled, which keeps tasks due at the same time in order
+    private int oneOffTasks; // The number of waiting tasks which are not runs of a repeating task
+
+    @Override
+    public synchronized long millis() {
+        return now;
+    }
+
+    @Override
+    public synchronized Timeout schedule(Runnable task, long delayMillis) {
+        boolean repeating = task instanceof GameClock.Repeating;
+        Task scheduledTask = new Task(task, now + Math.max(delayMillis, 0), scheduled++, repeating);
+        tasks.add(scheduledTask);
+        if (!repeating) oneOffTasks++;
+        return scheduledTask;
+    }
+
+    /**
+     * Moves the clock on by the given time, running every task which comes due on the way.
+     *
+     * @param millis The time to move on by, in milliseconds.
+     */
+    public void advance(long millis) {
+        long until;
+        synchronized (this) {
+            until = now + millis;
+        }
+        runTasksDueBy(until, false);
+        synchronized (this) {
+            now = Math.max(now, until);
+        }
+    }
+
+    /**
+     * Moves the clock on until every one-off task, including any scheduled by the tasks run, has run.
+     */
+    @Override
+    public void settle() {
+        runTasksDueBy(Long.MAX_VALUE, true);
+    }
+
+    /**
+     * Runs the tasks due by the given time in the order they come due, moving the clock to each one's due time.
+     * The tasks are run without holding the clock's lock, so they can schedule further tasks.
+     *
+     * @param until The time to run tasks up to.
+     * @param oneOffOnly Whether to stop once only repeating tasks are left.
+     */
+    private void runTasksDueBy(long until, boolean oneOffOnly) {
+        while (true) {
+            Task task;
+            synchronized (this) {
+                task = tasks.peek();
+                if (task == null || task.dueMillis > until || (oneOffOnly && oneOffTasks == 0)) return;
+                tasks.poll();
+                if (!task.repeating) oneOffTasks--;
+                now = Math.max(now, task.dueMillis);
+            }
+            if (!task.cancelled) task.task.run();
+        }
+    }
+
+    /**
+     * A task waiting on the virtual clock.
+     */
+    private static class Task implements Timeout, Comparable<Task> {
+        private final Runnable task; // The task to run when it comes due
+        private final long dueMillis; // The virtual time the task is due
+        private final long order; // The order the task was scheduled in
+        private final boolean repeating; // Whether the task is a run of a repeating task
+        private volatile boolean cancelled; // Flag for if the task should no longer run
+
+        Task(Runnable task, long dueMillis, long order, boolean repeating) {
+            this.task = task;
+            this.dueMillis = dueMillis;
+            this.order = order;
+            this.repeating = repeating;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            return dueMillis != other.dueMillis ? Long.compare(dueMillis, other.dueMillis) : Long.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The World class holds the registries for a single game session.
+ * <p>
+ * Previously these registries were static fields on the Game class, meaning every
+ * new game would overwrite the items, characters, rooms and locked doors of any other game
+ * running in the same JVM. Each Game now owns its own World, which is passed to the
+ * objects that need to register themselves or look up other objects.
+ * <p>
+ * The world also holds the paced stream which all of the session's output is written to, and which
+ * passes it on to the session's {@link OutputSink}.
+ * <p>
+ * Each world is given a session id, and keeps the command word being carried out and the room the player is in,
+ * so the {@link GameEvents} recorded anywhere in the session can say what the player was doing.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class World {
+    private static final AtomicLong sessionCount = new AtomicLong(); // The number of worlds created, which numbers their sessions
+
+    private ArrayList<Room> allUnlockedRooms; // List of all unlocked rooms for the use of magic mirror
+    private ArrayList<lockedDoor> lockedDoorObjects; // ArrayList of lockedDoor objects
+    private BitSet lockedRoomIds = new BitSet(); // The ids of the rooms behind locked doors
+    private BitSet keyItemIds = new BitSet(); // The ids of the items which unlock doors
+
+    private HashMap<String, Item> itemMap; // Map of items
+    private ArrayList<Item> itemsById; // Every item, indexed by its id
+    private ArrayList<Room> roomsById; // Every room, indexed by its id
+    private HashMap<String, Character> characterMap; // Map of characters
+
+    private PacedOutput out; // The stream which all output for this session is written to
+
+    private CharacterTable characterTable; // The changing state of every character
+    private CharacterScheduler characterScheduler; // Decides when the characters wander, created when first needed
+    private CharacterSimulation characterSimulation; // Moves the characters on a fixed tick, created when first needed
+    private long seed; // The seed the random choices of this session are drawn from
+    private SplittableRandom random; // Where the random choices of this session are drawn from
+    private Journal journal; // The journal random choices are recorded in, if the session is being journalled
+    private Journal.Replay replay; // The journal random choices are taken from, if the session is being replayed
+    private long sessionId = sessionCount.incrementAndGet(); // The id of the session, unique within the JVM
+    private String currentVerb; // The command word being carried out, or null between commands
+    private Room playerRoom; // The room the player is in
+    // Held while a command or a tick of the simulation changes the world. It is a ReentrantLock rather than the
+    // world's monitor, as a virtual thread which blocks while holding a monitor stays pinned to its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Constructs an empty world which writes its output to the console.
+     */
+    public World() {
+        this(StreamSink.console());
+    }
+
+    /**
+     * Constructs an empty world with no rooms, items, characters or locked doors.
+     *
+     * @param sink Where all output for this session is eventually written.
+     */
+    public World(OutputSink sink) {
+        this.out = new PacedOutput(sink);
+
+        allUnlockedRooms = new ArrayList<>();
+        lockedDoorObjects = new ArrayList<>();
+
+        itemMap = new HashMap<>();
+        itemsById = new ArrayList<>();
+        roomsById = new ArrayList<>();
+        characterMap = new HashMap<>();
+        characterTable = new CharacterTable();
+
+        seed = ThreadLocalRandom.current().nextLong();
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Registers a room with the world and gives it the next id. New rooms are unlocked until a lockedDoor leads into them.
+     *
+     * @param room The room to register.
+     * @return The id of the room.
+     */
+    public int addRoom(Room room) {
+        allUnlockedRooms.add(room);
+        roomsById.add(room);
+        return roomsById.size() - 1;
+    }
+
+    /**
+     * Returns the room with the given id.
+     *
+     * @param id The id of the room.
+     * @return The room.
+     */
+    public Room getRoom(int id) {
+        return roomsById.get(id);
+    }
+
+    /**
+     * @return The number of rooms registered, which is one more than the highest room id.
+     */
+    public int getRoomCount() {
+        return roomsById.size();
+    }
+
+    /**
+     * Registers an item with the world, keyed by its name in snake case, and gives it the next id.
+     * Ids start from 0 and are dense, so inventories can keep their counts in an array indexed by id.
+     *
+     * @param item The item to register.
+     * @return The id of the item.
+     */
+    public int addItem(Item item) {
+        itemMap.put(Utils.toSnakeCase(item.getName()), item);
+        itemsById.add(item);
+        return itemsById.size() - 1;
+    }
+
+    /**
+     * Returns the item with the given id.
+     *
+     * @param id The id of the item.
+     * @return The item.
+     */
+    public Item getItem(int id) {
+        return itemsById.get(id);
+    }
+
+    /**
+     * @return The number of items registered, which is one more than the highest item id.
+     */
+    public int getItemCount() {
+        return itemsById.size();
+    }
+
+    /**
+     * Registers a character with the world, keyed by its name in snake case.
+     *
+     * @param character The character to register.
+     */
+    public void addCharacter(Character character) {
+        characterMap.put(Utils.toSnakeCase(character.getName()), character);
+    }
+
+    /**
+     * Registers a locked door with the world.
+     * <p>
+     * The room behind the door is removed from the list of unlocked rooms and marked as locked.
+     *
+     * @param door The locked door to register.
+     * @param lockedRoom The room which the door leads into.
+     */
+    public void addLockedDoor(lockedDoor door, Room lockedRoom) {
+        lockedDoorObjects.add(door); // Add the locked door to the list of locked doors
+
+        allUnlockedRooms.remove(lockedRoom); // Remove the locked room from the allUnlockedRooms list
+        lockedRoomIds.set(lockedRoom.getId());
+        keyItemIds.set(door.getKey().getId());
+    }
+
+    /**
+     * @param room The room.
+     * @return true if the room is behind a locked door.
+     */
+    public boolean isLockedRoom(Room room) {
+        return lockedRoomIds.get(room.getId());
+    }
+
+    /**
+     * @param item The item.
+     * @return true if the item is the key to a locked door.
+     */
+    public boolean isKey(Item item) {
+        return keyItemIds.get(item.getId());
+    }
+
+    /**
+     * @return The stream which all output for this session is written to.
+     */
+    public PacedOutput getOut() {
+        return out;
+    }
+
+    /**
+     * @return The list of all unlocked rooms.
+     */
+    public ArrayList<Room> getAllUnlockedRooms() {
+        return allUnlockedRooms;
+    }
+
+    /**
+     * @return The list of all locked doors.
+     */
+    public ArrayList<lockedDoor> getLockedDoorObjects() {
+        return lockedDoorObjects;
+    }
+
+    /**
+     * @return The map of snake case item names to items.
+     */
+    public HashMap<String, Item> getItemMap() {
+        return itemMap;
+    }
+
+    /**
+     * @return The map of snake case character names to characters.
+     */
+    public HashMap<String, Character> getCharacterMap() {
+        return characterMap;
+    }
+
+    /**
+     * @return The table holding the changing state of every character.
+     */
+    public CharacterTable getCharacterTable() {
+        return characterTable;
+    }
+
+    /**
+     * @return The scheduler which decides when the characters wander. It is created on the first call,
+     *         so the world is not handed to it before it has been constructed.
+     */
+    public CharacterScheduler getCharacterScheduler() {
+        if (characterScheduler == null) {
+            characterScheduler = new CharacterScheduler(this);
+        }
+        return characterScheduler;
+    }
+
+    /**
+     * @return The simulation which moves the characters on a fixed tick, for large manors. It is created on
+     *         the first call, like the scheduler.
+     */
+    public CharacterSimulation getCharacterSimulation() {
+        if (characterSimulation == null) {
+            characterSimulation = new CharacterSimulation(this);
+        }
+        return characterSimulation;
+    }
+
+    /**
+     * Makes a random choice for this session, such as which way a character wanders.
+     * <p>
+     * When the session is being replayed the choice is taken from the journal instead, and when it is being
+     * journalled the choice is recorded, so that a replay makes the same choices.
+     *
+     * @param bound The number of possible outcomes.
+     * @return A number from 0 up to, but not including, the bound.
+     * @throws Journal.MismatchException If the session is being replayed and the journal has no such choice.
+     */
+    public int nextRandom(int bound) {
+        int value = replay != null ? replay.nextRandom(bound) : random.nextInt(bound);
+        if (journal != null) journal.recordRandom(value);
+        return value;
+    }
+
+    /**
+     * Draws the number of tries until the first success, when each try succeeds with a chance of 1 in the given
+     * number, such as the number of commands until a character next wanders. The choice is journalled and
+     * replayed like {@link #nextRandom(int)}.
+     *
+     * @param chance The chance of each try succeeding, one in this many.
+     * @return The number of tries, at least 1.
+     */
+    public int nextGeometric(int chance) {
+        int value;
+        if (replay != null) {
+            value = replay.nextRandom(Integer.MAX_VALUE);
+        } else if (chance <= 1) {
+            value = 1;
+        } else {
+            double uniform = 1.0 - random.nextDouble(); // Never 0, so its logarithm is finite
+            value = (int) Math.min(Integer.MAX_VALUE - 1, 1 + Math.floor(Math.log(uniform) / Math.log1p(-1.0 / chance)));
+        }
+        if (journal != null) journal.recordRandom(value);
+        return value;
+    }
+
+    /**
+     * Seeds the random choices of this session, so that a session given the same seed and the same commands
+     * makes the same choices. Each world is seeded differently unless it is given a seed.
+     *
+     * @param seed The seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return The seed the random choices of this session are drawn from.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The lock held while a command or a tick of the character simulation changes the world.
+     */
+    public ReentrantLock getLock() {
+        return lock;
+    }
+
+    /**
+     * @return The id of the session, unique within the JVM.
+     */
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Sets the command word being carried out, which events recorded during the command are tagged with.
+     *
+     * @param verb The command word, or null once the command has been carried out.
+     */
+    public void setCurrentVerb(String verb) {
+        this.currentVerb = verb;
+    }
+
+    /**
+     * @return The command word being carried out, or null between commands.
+     */
+    public String getCurrentVerb() {
+        return currentVerb;
+    }
+
+    /**
+     * Sets the room the player is in, which events recorded in the session are tagged with.
+     *
+     * @param room The room.
+     */
+    public void setPlayerRoom(Room room) {
+        this.playerRoom = room;
+    }
+
+    /**
+     * @return The room the player is in, or null before the manor is built.
+     */
+    public Room getPlayerRoom() {
+        return playerRoom;
+    }
+
+    /**
+     * Sets the journal the random choices of this session are recorded in.
+     *
+     * @param journal The journal, or null to stop recording.
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Sets the journal the random choices of this session are taken from, rather than being drawn.
+     *
+     * @param replay The journal being replayed, or null to draw the choices again.
+     */
+    public void setReplay(Journal.Replay replay) {
+        this.replay = replay;
+    }
+}
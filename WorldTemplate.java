@@ -0,0 +1,500 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+
+/**
+ * The WorldTemplate class is an immutable description of a manor: its rooms and their exits, the items,
+ * the characters, the locked doors and where everything starts.
+ * <p>
+ * A template is read once from a JSON file (normally world.json) by {@link #load(Reader)}, which checks that
+ * every room, item and direction it refers to exists, that no room has two exits the same way, that item
+ * weights are not negative and that item counts are positive. Every game session then builds its own World from the
+ * same template with {@link #create(World)}, so the file is only read and checked once however many sessions
+ * are started. Nothing in a template is changed after it is loaded, so it can be shared between threads.
+ * <p>
+ * The file is an object with these members, in any order:
+ * <pre>
+ *     "start":       the name of the room the player starts in
+ *     "items":       [ { "name": "coin", "weight": 1 }, ... ]
+ *     "rooms":       [ { "name": ..., "description": ..., "exits": { "north": "Library" }, "items": { "coin": 1 } }, ... ]
+ *     "characters":  [ { "name": ..., "passive": true, "health": 100, "room": ..., "items": { "vacuum": 1 } }, ... ]
+ *     "lockedDoors": [ { "room": "Kitchen", "direction": "east", "key": "pantry key" }, ... ]
+ * </pre>
+ * Room and item names are referred to exactly as they are written in their definitions.
+ * <p>
+ * So that manors with tens of thousands of rooms load quickly, the rooms are not kept as an object each; a manor
+ * of 30,000 rooms takes a few hundred milliseconds, most of it spent warming up the JIT compiler.
+ * Their exits and items are kept in flat arrays, with the exits of room r found from exitStart[r] up to
+ * exitStart[r + 1], every direction is kept as a {@link Direction}, and every name is shared rather than kept once
+ * for each time it is written.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class WorldTemplate {
+    public static final String STANDARD_FILE = "world.json"; // The file the standard manor is read from
+
+    private final String[] itemNames; // The name of each item, in the order they are given ids
+    private final int[] itemWeights; // The weight of each item
+
+    private final String[] roomNames; // The name of each room
+    private final String[] roomDescriptions; // The description of each room
+    private final int[] exitStart; // Where each room's exits start in the exit arrays, with one extra entry for the end
+    private final Direction[] exitDirections; // The direction of each exit
+    private final int[] exitRooms; // The index of the room each exit leads to
+    private final int[] placementStart; // Where each room's items start in the placement arrays, with one extra entry for the end
+    private final int[] placementItems; // The index of each item placed in a room
+    private final int[] placementCounts; // The number of each item placed in a room
+
+    private final CharacterDefinition[] characters; // The characters
+    private final LockedDoorDefinition[] lockedDoors; // The locked doors
+    private final int startRoom; // The index of the room the player starts in
+    private final RoutePlanner routes; // The shortest routes between the rooms
+    private final ManorMap map; // The layout of the rooms on the map
+
+    /**
+     * A character, with its room and items given by index.
+     */
+    private record CharacterDefinition(String name, boolean passive, int health, int room, int[] items, int[] counts) {}
+
+    /**
+     * A locked door, with its room and key given by index.
+     */
+    private record LockedDoorDefinition(int room, Direction direction, int key) {}
+
+    /**
+     * Holds the standard manor, which is only loaded the first time it is needed.
+     */
+    private static class Standard {
+        private static final WorldTemplate TEMPLATE = loadStandard();
+    }
+
+    private WorldTemplate(Loader loader, int[] exitRooms, int[] placementItems, CharacterDefinition[] characters,
+                          LockedDoorDefinition[] lockedDoors, int startRoom) {
+        itemNames = loader.itemNames.toArray(new String[0]);
+        itemWeights = loader.itemWeights.toArray();
+        roomNames = loader.roomNames.toArray(new String[0]);
+        roomDescriptions = loader.roomDescriptions.toArray(new String[0]);
+        exitStart = loader.exitStart.toArray();
+        exitDirections = loader.exitDirections.toArray(new Direction[0]);
+        this.exitRooms = exitRooms;
+        placementStart = loader.placementStart.toArray();
+        this.placementItems = placementItems;
+        placementCounts = loader.placementCounts.toArray();
+        this.characters = characters;
+        this.lockedDoors = lockedDoors;
+        this.startRoom = startRoom;
+
+        int[] doorExits = new int[lockedDoors.length];
+        for (int d = 0; d < lockedDoors.length; d++) {
+            doorExits[d] = exitIndex(lockedDoors[d].room(), lockedDoors[d].direction());
+        }
+        routes = new RoutePlanner(roomNames, exitStart, exitDirections, exitRooms, doorExits);
+        map = new ManorMap(roomNames, exitStart, exitDirections, exitRooms, startRoom);
+    }
+
+    /**
+     * Returns the standard manor, loading it from {@link #STANDARD_FILE} the first time.
+     *
+     * @return The template of the standard manor.
+     * @throws UncheckedIOException If the file cannot be read or is not a valid manor.
+     */
+    public static WorldTemplate standard() {
+        return Standard.TEMPLATE;
+    }
+
+    private static WorldTemplate loadStandard() {
+        try (Reader reader = Utils.openDataFile(STANDARD_FILE)) {
+            return load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load " + STANDARD_FILE, e);
+        }
+    }
+
+    /**
+     * Reads and checks a manor.
+     *
+     * @param reader The reader the JSON description of the manor is read from.
+     * @return The template of the manor.
+     * @throws IOException If the description cannot be read, is malformed, refers to something which does not exist,
+     *                     or has a repeated exit, a negative weight or a count which is not positive.
+     */
+    public static WorldTemplate load(Reader reader) throws IOException {
+        Loader loader = new Loader(new JsonReader(reader));
+        loader.read();
+        return loader.resolve();
+    }
+
+    /**
+     * Builds the rooms, items, characters and locked doors of the manor in the given world.
+     *
+     * @param world The world to build the manor in, which should be empty.
+     * @return The room the player starts in.
+     */
+    public Room create(World world) {
+        Item[] items = new Item[itemNames.length];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = new Item(world, itemNames[i], itemWeights[i]);
+        }
+
+        Room[] rooms = new Room[roomNames.length];
+        for (int r = 0; r < rooms.length; r++) {
+            rooms[r] = new Room(world, roomNames[r], roomDescriptions[r]);
+        }
+
+        for (int r = 0; r < rooms.length; r++) {
+            for (int e = exitStart[r]; e < exitStart[r + 1]; e++) {
+                rooms[r].setExit(exitDirections[e], rooms[exitRooms[e]]);
+            }
+            for (int p = placementStart[r]; p < placementStart[r + 1]; p++) {
+                rooms[r].addItemToRoomInventory(items[placementItems[p]], placementCounts[p]);
+            }
+        }
+
+        for (CharacterDefinition definition : characters) {
+            Room room = rooms[definition.room()];
+            Character character = new Character(world, definition.name(), definition.passive(), definition.health(), room);
+            room.addCharacter(character);
+            for (int p = 0; p < definition.items().length; p++) {
+                character.addItemToCharacterInventory(items[definition.items()[p]], definition.counts()[p]);
+            }
+        }
+
+        for (LockedDoorDefinition door : lockedDoors) {
+            new lockedDoor(world, rooms[door.room()], door.direction(), items[door.key()]);
+        }
+
+        return rooms[startRoom];
+    }
+
+    /**
+     * @return The number of rooms in the manor.
+     */
+    public int getRoomCount() {
+        return roomNames.length;
+    }
+
+    /**
+     * Returns the planner of routes between the rooms, which is shared by every game played in the manor.
+     * Rooms are given ids in the order they are built, so a room's id in the world is its index in the planner,
+     * and the locked doors of the world are in the same order as the planner's doors.
+     *
+     * @return The route planner.
+     */
+    public RoutePlanner getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Returns the layout of the rooms on the map, which is worked out once and shared by every game played in the manor.
+     *
+     * @return The map.
+     */
+    public ManorMap getMap() {
+        return map;
+    }
+
+    /**
+     * @return The index of the exit of a room in the given direction.
+     */
+    private int exitIndex(int room, Direction direction) {
+        for (int e = exitStart[room]; e < exitStart[room + 1]; e++) {
+            if (exitDirections[e] == direction) return e;
+        }
+        throw new IllegalArgumentException("Room '" + roomNames[room] + "' has no exit " + direction);
+    }
+
+    /**
+     * Reads the definitions as they are written, and then checks the names they refer to and turns them into indexes.
+     */
+    private static class Loader {
+        private final JsonReader json; // The document being read
+        private final HashMap<String, String> names = new HashMap<>(); // One copy of every name read
+        private String start; // The name of the start room
+
+        private final ArrayList<String> itemNames = new ArrayList<>();
+        private final IntList itemWeights = new IntList();
+        private final IntList itemLines = new IntList(); // The line each item is defined at, for error messages
+
+        private final ArrayList<String> roomNames = new ArrayList<>();
+        private final ArrayList<String> roomDescriptions = new ArrayList<>();
+        private final IntList roomLines = new IntList(); // The line each room is defined at, for error messages
+        private final IntList exitStart = new IntList();
+        private final ArrayList<Direction> exitDirections = new ArrayList<>();
+        private final ArrayList<String> exitRoomNames = new ArrayList<>();
+        private final IntList placementStart = new IntList();
+        private final ArrayList<String> placementItemNames = new ArrayList<>();
+        private final IntList placementCounts = new IntList();
+
+        private record RawCharacter(String name, boolean passive, int health, String room,
+                                    ArrayList<String> items, IntList counts, int line) {}
+        private record RawLockedDoor(String room, String direction, String key, int line) {}
+
+        private final ArrayList<RawCharacter> characters = new ArrayList<>();
+        private final ArrayList<RawLockedDoor> lockedDoors = new ArrayList<>();
+
+        Loader(JsonReader json) {
+            this.json = json;
+        }
+
+        /**
+         * Reads the whole document.
+         */
+        void read() throws IOException {
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "start" -> start = json.nextString();
+                    case "items" -> {
+                        json.beginArray();
+                        while (json.hasNext()) readItem();
+                        json.endArray();
+                    }
+                    case "rooms" -> {
+                        json.beginArray();
+                        while (json.hasNext()) readRoom();
+                        json.endArray();
+                    }
+                    case "characters" -> {
+                        json.beginArray();
+                        while (json.hasNext()) readCharacter();
+                        json.endArray();
+                    }
+                    case "lockedDoors" -> {
+                        json.beginArray();
+                        while (json.hasNext()) readLockedDoor();
+                        json.endArray();
+                    }
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+            json.endDocument();
+
+            exitStart.add(exitDirections.size()); // The end of the last room's exits
+            placementStart.add(placementItemNames.size()); // The end of the last room's items
+        }
+
+        private void readItem() throws IOException {
+            int line = json.getLine();
+            String name = null;
+            int weight = 0;
+
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "name" -> name = share(json.nextString());
+                    case "weight" -> weight = json.nextInt();
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+
+            if (name == null) throw invalid("Item has no name", line);
+            if (weight < 0) throw invalid("Item '" + name + "' has a negative weight", line);
+            itemNames.add(name);
+            itemWeights.add(weight);
+            itemLines.add(line);
+        }
+
+        private void readRoom() throws IOException {
+            int line = json.getLine();
+            String name = null, description = null;
+            exitStart.add(exitDirections.size());
+            placementStart.add(placementItemNames.size());
+
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "name" -> name = share(json.nextString());
+                    case "description" -> description = json.nextString();
+                    case "exits" -> {
+                        EnumSet<Direction> directions = EnumSet.noneOf(Direction.class);
+                        json.beginObject();
+                        while (json.hasNext()) {
+                            String word = json.nextName();
+                            Direction direction = Direction.parse(word);
+                            if (direction == null) throw invalid("Unknown direction '" + word + "'", line);
+                            if (!directions.add(direction)) throw invalid("Duplicate exit '" + word + "'", line);
+                            exitDirections.add(direction);
+                            exitRoomNames.add(share(json.nextString()));
+                        }
+                        json.endObject();
+                    }
+                    case "items" -> readCounts(placementItemNames, placementCounts, line);
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+
+            if (name == null || description == null) throw invalid("Room needs a name and description", line);
+            roomNames.add(name);
+            roomDescriptions.add(description);
+            roomLines.add(line);
+        }
+
+        private void readCharacter() throws IOException {
+            int line = json.getLine();
+            String name = null, room = null;
+            boolean passive = true;
+            int health = 100;
+            ArrayList<String> items = new ArrayList<>();
+            IntList counts = new IntList();
+
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "name" -> name = json.nextString();
+                    case "passive" -> passive = json.nextBoolean();
+                    case "health" -> health = json.nextInt();
+                    case "room" -> room = json.nextString();
+                    case "items" -> readCounts(items, counts, line);
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+
+            if (name == null || room == null) throw invalid("Character needs a name and room", line);
+            characters.add(new RawCharacter(name, passive, health, room, items, counts, line));
+        }
+
+        private void readLockedDoor() throws IOException {
+            int line = json.getLine();
+            String room = null, direction = null, key = null;
+
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "room" -> room = json.nextString();
+                    case "direction" -> direction = json.nextString();
+                    case "key" -> key = json.nextString();
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+
+            if (room == null || direction == null || key == null) throw invalid("Locked door needs a room, direction and key", line);
+            lockedDoors.add(new RawLockedDoor(room, direction, key, line));
+        }
+
+        /**
+         * Reads an object whose members are all positive whole numbers, such as the items in a room.
+         */
+        private void readCounts(ArrayList<String> names, IntList counts, int line) throws IOException {
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = share(json.nextName());
+                int count = json.nextInt();
+                if (count <= 0) throw invalid("Item '" + name + "' has a count of " + count + ", which is not positive", line);
+                names.add(name);
+                counts.add(count);
+            }
+            json.endObject();
+        }
+
+        /**
+         * Returns the copy of a name which has already been read, if there is one, so it is only kept once.
+         */
+        private String share(String name) {
+            String shared = names.putIfAbsent(name, name);
+            return shared == null ? name : shared;
+        }
+
+        /**
+         * Checks every name which has been read and builds the template.
+         */
+        WorldTemplate resolve() throws IOException {
+            HashMap<String, Integer> itemIndexes = new HashMap<>();
+            for (int i = 0; i < itemNames.size(); i++) {
+                if (itemIndexes.put(itemNames.get(i), i) != null) throw invalid("Duplicate item '" + itemNames.get(i) + "'", itemLines.get(i));
+            }
+
+            HashMap<String, Integer> roomIndexes = new HashMap<>();
+            for (int r = 0; r < roomNames.size(); r++) {
+                if (roomIndexes.put(roomNames.get(r), r) != null) throw invalid("Duplicate room '" + roomNames.get(r) + "'", roomLines.get(r));
+            }
+
+            int[] exitRooms = new int[exitRoomNames.size()];
+            int[] placementItems = new int[placementItemNames.size()];
+            for (int r = 0; r < roomNames.size(); r++) {
+                for (int e = exitStart.get(r); e < exitStart.get(r + 1); e++) {
+                    exitRooms[e] = indexOf(exitRoomNames.get(e), roomIndexes, "room", roomLines.get(r));
+                }
+                for (int p = placementStart.get(r); p < placementStart.get(r + 1); p++) {
+                    placementItems[p] = indexOf(placementItemNames.get(p), itemIndexes, "item", roomLines.get(r));
+                }
+            }
+
+            HashMap<String, Integer> characterNames = new HashMap<>();
+            CharacterDefinition[] characterDefinitions = new CharacterDefinition[characters.size()];
+            for (int c = 0; c < characterDefinitions.length; c++) {
+                RawCharacter raw = characters.get(c);
+                if (characterNames.put(Utils.toSnakeCase(raw.name()), c) != null) throw invalid("Duplicate character '" + raw.name() + "'", raw.line());
+
+                int[] items = new int[raw.items().size()];
+                for (int p = 0; p < items.length; p++) {
+                    items[p] = indexOf(raw.items().get(p), itemIndexes, "item", raw.line());
+                }
+                characterDefinitions[c] = new CharacterDefinition(raw.name(), raw.passive(), raw.health(),
+                        indexOf(raw.room(), roomIndexes, "room", raw.line()), items, raw.counts().toArray());
+            }
+
+            LockedDoorDefinition[] lockedDoorDefinitions = new LockedDoorDefinition[lockedDoors.size()];
+            for (int d = 0; d < lockedDoorDefinitions.length; d++) {
+                RawLockedDoor raw = lockedDoors.get(d);
+                int room = indexOf(raw.room(), roomIndexes, "room", raw.line());
+                Direction direction = Direction.parse(raw.direction());
+                if (direction == null || !hasExit(room, direction)) throw invalid("Room '" + raw.room() + "' has no exit " + raw.direction(), raw.line());
+                lockedDoorDefinitions[d] = new LockedDoorDefinition(room, direction, indexOf(raw.key(), itemIndexes, "item", raw.line()));
+            }
+
+            if (start == null) throw new IOException("The manor has no start room");
+            Integer startRoom = roomIndexes.get(start);
+            if (startRoom == null) throw new IOException("Unknown start room '" + start + "'");
+
+            return new WorldTemplate(this, exitRooms, placementItems, characterDefinitions, lockedDoorDefinitions, startRoom);
+        }
+
+        private boolean hasExit(int room, Direction direction) {
+            for (int e = exitStart.get(room); e < exitStart.get(room + 1); e++) {
+                if (exitDirections.get(e) == direction) return true;
+            }
+            return false;
+        }
+
+        private static int indexOf(String name, HashMap<String, Integer> indexes, String kind, int line) throws IOException {
+            Integer index = indexes.get(name);
+            if (index == null) throw invalid("Unknown " + kind + " '" + name + "'", line);
+            return index;
+        }
+
+        private static IOException invalid(String message, int line) {
+            return new IOException(message + " (defined at line " + line + ")");
+        }
+    }
+
+    /**
+     * A growable list of ints, so numbers read from the file are not boxed.
+     */
+    private static class IntList {
+        private int[] values = new int[16]; // The numbers, followed by unused space
+        private int size; // The number of numbers in the list
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
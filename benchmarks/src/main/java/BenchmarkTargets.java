@@ -0,0 +1,185 @@
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import manor.benchmarks.RepeatingInputStream;
+import manor.benchmarks.Targets;
+
+/**
+ * Builds the game objects for the benchmarks. This class is in the default package, alongside the game,
+ * so it can reach the game's classes; see {@link Targets}.
+ * <p>
+ * All output is discarded and pacing is disabled, so only the work of each command is measured.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class BenchmarkTargets implements Targets {
+    @Override
+    public Supplier<Object> parseCommand(String inputLine) {
+        World world = newWorld();
+        Parser parser = new Parser(new RepeatingInputStream(inputLine + "\n"), world.getOut());
+        return parser::getCommand;
+    }
+
+    @Override
+    public BooleanSupplier processCommand(String verb) {
+        Game game = new Game(InputStream.nullInputStream(), new StreamSink(OutputStream.nullOutputStream()));
+        game.presetGameValues(true, null);
+        game.setPacingEnabled(false);
+
+        // Commands which put the game in the right state for the verb, followed by the commands which are
+        // cycled through. Verbs which move the player pair the move with one back, so every cycle starts
+        // from the same room.
+        String[] setup = {};
+        String[] cycle = switch (verb) {
+            case "go" -> new String[] {"go north", "go south"};
+            case "back" -> new String[] {"go north", "back"};
+            case "help" -> new String[] {"help"};
+            case "inventory" -> new String[] {"inventory display"};
+            case "interact" -> new String[] {"interact butler"};
+            case "use" -> {
+                setup = new String[] {"go north", "inventory pickup ancient_book"};
+                yield new String[] {"use ancient_book"};
+            }
+            case "answer" -> new String[] {"answer vacuum"};
+            case "room" -> new String[] {"room info"};
+            case "map" -> new String[] {"map"};
+            case "quit" -> new String[] {"quit"};
+            case "unknown" -> new String[] {"dance"};
+            default -> throw new IllegalArgumentException("Unknown verb: " + verb);
+        };
+
+        for (String line : setup) {
+            game.processCommand(parse(line));
+        }
+
+        Command[] commands = new Command[cycle.length];
+        for (int i = 0; i < cycle.length; i++) {
+            commands[i] = parse(cycle[i]);
+        }
+
+        return new BooleanSupplier() {
+            private int next;
+
+            @Override
+            public boolean getAsBoolean() {
+                Command command = commands[next];
+                next = (next + 1) % commands.length;
+                return game.processCommand(command);
+            }
+        };
+    }
+
+    @Override
+    public Runnable addAndRemoveItem() {
+        World world = newWorld();
+        Item coin = new Item(world, "coin", 1);
+        Inventory inventory = new Inventory(world, 50);
+        return () -> {
+            inventory.addItem(coin, 1);
+            inventory.removeItem(coin, 1);
+        };
+    }
+
+    @Override
+    public Runnable pickupAndDropItem() {
+        World world = newWorld();
+        Item coin = new Item(world, "coin", 1);
+        Room room = new Room(world, "Entrance Hall", "in the entrance hall of the Mystic Manor");
+        room.addItemToRoomInventory(coin, 1);
+        Inventory inventory = new Inventory(world, 50);
+        return () -> {
+            inventory.pickupItem(room, coin, 1);
+            inventory.dropItem(room, coin, 1);
+        };
+    }
+
+    @Override
+    public Runnable displayRoomDetails() {
+        World world = newWorld();
+        Room library = new Room(world, "Library", "in the library filled with ancient books");
+        Room entranceHall = new Room(world, "Entrance Hall", "in the entrance hall of the Mystic Manor");
+        Room study = new Room(world, "Study", "in the quiet study with a locked drawer");
+        library.setExit(Direction.SOUTH, entranceHall);
+        library.setExit(Direction.NORTH, study);
+        library.addItemToRoomInventory(new Item(world, "coin", 1), 1);
+        library.addItemToRoomInventory(new Item(world, "ancient book", 20), 1);
+        library.addCharacter(new Character(world, "Cat", true, 60, library));
+        library.addCharacter(new Character(world, "Butler", true, 100, library));
+        return library::displayRoomDetails;
+    }
+
+    @Override
+    public Runnable randomRoomMovement() {
+        World world = newWorld();
+        Room kitchen = new Room(world, "Kitchen", "in the kitchen with a locked pantry");
+        Room greenhouse = new Room(world, "Greenhouse", "in the indoor garden with exotic plants");
+        kitchen.setExit(Direction.NORTH, greenhouse);
+        greenhouse.setExit(Direction.SOUTH, kitchen);
+
+        Character maid = new Character(world, "Maid", true, 80, kitchen);
+        kitchen.addCharacter(maid);
+        maid.setRandomMovementValues(true, 5);
+        maid.interact(); // Characters only move once they have been interacted with
+        return world.getCharacterScheduler()::tick;
+    }
+
+    @Override
+    public Runnable simulationTick(int characters) {
+        World world = newWorld();
+        world.setSeed(1);
+
+        // A 32 by 32 grid of rooms, with the characters spread evenly between them
+        int side = 32;
+        Room[][] rooms = new Room[side][side];
+        for (int x = 0; x < side; x++) {
+            for (int y = 0; y < side; y++) {
+                rooms[x][y] = new Room(world, "Room " + x + " " + y, "in a room of the grid");
+            }
+        }
+        for (int x = 0; x < side; x++) {
+            for (int y = 0; y < side; y++) {
+                if (x > 0) rooms[x][y].setExit(Direction.WEST, rooms[x - 1][y]);
+                if (x < side - 1) rooms[x][y].setExit(Direction.EAST, rooms[x + 1][y]);
+                if (y > 0) rooms[x][y].setExit(Direction.SOUTH, rooms[x][y - 1]);
+                if (y < side - 1) rooms[x][y].setExit(Direction.NORTH, rooms[x][y + 1]);
+            }
+        }
+
+        for (int i = 0; i < characters; i++) {
+            Room room = rooms[i % side][(i / side) % side];
+            Character character = new Character(world, "Character " + i, true, 10, room);
+            room.addCharacter(character);
+            character.setRandomMovementValues(true, 5);
+            world.getCharacterTable().setFlag(character.getIndex(), CharacterTable.INTERACTED, true); // Interacted with, without the dialog
+        }
+
+        CharacterSimulation simulation = world.getCharacterSimulation();
+        return simulation::tick;
+    }
+
+    /**
+     * @return A world which discards its output and does not pause.
+     */
+    private static World newWorld() {
+        World world = new World(new StreamSink(OutputStream.nullOutputStream()));
+        world.getOut().setPacingEnabled(false);
+        return world;
+    }
+
+    /**
+     * Parses a line into a command in the same way as the game would.
+     *
+     * @param line The line to parse.
+     * @return The command.
+     */
+    private static Command parse(String line) {
+        World world = newWorld();
+        Parser parser = new Parser(new ByteArrayInputStream((line + "\n").getBytes(StandardCharsets.UTF_8)), world.getOut());
+        return parser.getCommand();
+    }
+}
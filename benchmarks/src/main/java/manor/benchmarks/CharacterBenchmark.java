@@ -0,0 +1,40 @@
+package manor.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a command's worth of character movement through CharacterScheduler.tick, with one character wandering on hard difficulty.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CharacterBenchmark {
+    private Runnable randomRoomMovement;
+
+    @Setup
+    public void setUp() {
+        randomRoomMovement = Targets.load().randomRoomMovement();
+    }
+
+    @Benchmark
+    public void randomRoomMovement() {
+        randomRoomMovement.run();
+    }
+}
@@ -0,0 +1,48 @@
+package manor.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Game.processCommand dispatch for each verb, with output discarded and pacing disabled.
+ * <p>
+ * The "go" and "back" verbs alternate with a move in the opposite direction so the player stays near
+ * the entrance hall, so each of their results covers two kinds of move.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandBenchmark {
+    @Param({"go", "back", "help", "inventory", "interact", "use", "answer", "room", "map", "quit", "unknown"})
+    public String verb;
+
+    private BooleanSupplier processCommand;
+
+    @Setup
+    public void setUp() {
+        processCommand = Targets.load().processCommand(verb);
+    }
+
+    @Benchmark
+    public boolean processCommand() {
+        return processCommand.getAsBoolean();
+    }
+}
@@ -0,0 +1,50 @@
+package manor.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the player inventory operations: Inventory.addItem, removeItem, pickupItem and dropItem.
+ * <p>
+ * Each operation is paired with its opposite so the inventory never fills up.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InventoryBenchmark {
+    private Runnable addAndRemoveItem;
+    private Runnable pickupAndDropItem;
+
+    @Setup
+    public void setUp() {
+        Targets targets = Targets.load();
+        addAndRemoveItem = targets.addAndRemoveItem();
+        pickupAndDropItem = targets.pickupAndDropItem();
+    }
+
+    @Benchmark
+    public void addAndRemoveItem() {
+        addAndRemoveItem.run();
+    }
+
+    @Benchmark
+    public void pickupAndDropItem() {
+        pickupAndDropItem.run();
+    }
+}
@@ -0,0 +1,46 @@
+package manor.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures turning a line of raw text into a Command through Parser.getCommand.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+    @Param({"go north", "inventory drop coin 5", "use jewelled_dagger ghost_of_the_former_owner", "dance"})
+    public String inputLine;
+
+    private Supplier<Object> parseCommand;
+
+    @Setup
+    public void setUp() {
+        parseCommand = Targets.load().parseCommand(inputLine);
+    }
+
+    @Benchmark
+    public void getCommand(Blackhole blackhole) {
+        blackhole.consume(parseCommand.get());
+    }
+}
@@ -0,0 +1,38 @@
+package manor.benchmarks;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An input stream which repeats the same text forever, so a parser can be benchmarked without running out of input.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public class RepeatingInputStream extends InputStream {
+    private final byte[] text; // The bytes which are repeated
+    private int position; // The position of the next byte to read
+
+    /**
+     * @param text The text to repeat.
+     */
+    public RepeatingInputStream(String text) {
+        this.text = text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int read() {
+        byte b = text[position];
+        position = (position + 1) % text.length;
+        return b & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        for (int i = 0; i < len; i++) {
+            b[off + i] = text[position];
+            position = (position + 1) % text.length;
+        }
+        return len;
+    }
+}
@@ -0,0 +1,40 @@
+package manor.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rendering a room with Room.displayRoomDetails, with output discarded.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoomBenchmark {
+    private Runnable displayRoomDetails;
+
+    @Setup
+    public void setUp() {
+        displayRoomDetails = Targets.load().displayRoomDetails();
+    }
+
+    @Benchmark
+    public void displayRoomDetails() {
+        displayRoomDetails.run();
+    }
+}
@@ -0,0 +1,67 @@
+package manor.benchmarks;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The operations on the game which are benchmarked.
+ * <p>
+ * The game lives in the default package, which cannot be imported from a named package, and JMH does not
+ * allow benchmarks in the default package. This interface is implemented by {@code BenchmarkTargets} in the
+ * default package, which builds the game objects and hands each operation back as a plain functional interface.
+ *
+ * @author Mahdi Razzaque
+ * @version 28.11.2024
+ */
+public interface Targets {
+    /**
+     * @param inputLine The line the parser reads, over and over.
+     * @return Reads the next command through {@code Parser.getCommand}.
+     */
+    Supplier<Object> parseCommand(String inputLine);
+
+    /**
+     * @param verb The verb to dispatch, or "unknown" for a command which is not recognised.
+     * @return Processes the next command for the verb through {@code Game.processCommand}.
+     */
+    BooleanSupplier processCommand(String verb);
+
+    /**
+     * @return Adds an item to the player's inventory and removes it again.
+     */
+    Runnable addAndRemoveItem();
+
+    /**
+     * @return Picks an item up from a room and drops it back again.
+     */
+    Runnable pickupAndDropItem();
+
+    /**
+     * @return Renders a room with items, characters and exits through {@code Room.displayRoomDetails}.
+     */
+    Runnable displayRoomDetails();
+
+    /**
+     * @return Counts a command on {@code CharacterScheduler.tick}, moving a character who has been interacted with when their move comes due.
+     */
+    Runnable randomRoomMovement();
+
+    /**
+     * @param characters The number of characters wandering a grid of rooms, all of whom have been interacted with.
+     * @return Runs one tick of {@code CharacterSimulation.tick}, on hard difficulty.
+     */
+    Runnable simulationTick(int characters);
+
+    /**
+     * Creates the default package implementation.
+     *
+     * @return The benchmark targets.
+     */
+    static Targets load() {
+        try {
+            return (Targets) Class.forName("BenchmarkTargets").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not load the benchmark targets", e);
+        }
+    }
+}
@@ -1,49 +1,32 @@
-import java.util.HashMap;
-
 /**
  * The lockedDoor class represents a door that requires a key to unlock.
  * <p>
- * Each lockedDoor object has a roomPlusDirection string which indicates the specific door that is locked.
- * For example, roomPlusDirection may be "kitchenEast", representing the door between the kitchen and the room to the east of it.
+ * Each lockedDoor object is held by the exit of the room it locks, so moving through that exit finds
+ * the door at once. For example, a door on the east exit of the kitchen locks the way into the room to the east.
  * The key variable stores the item object needed to unlock the door.
  *
  * @author Mahdi Razzaque
  * @version 28.11.24
  */
 public class lockedDoor {
-    private String roomPlusDirection; // Represents which door is locked
     private Item key; // Stores the item needed to unlock the door
 
     /**
      * Constructs a lockedDoor object with the specified room and direction, and the key required to unlock it.
      * <p>
-     * This method converts the room and direction into a concatenated snake case string, assigns the key,
-     * and updates the game's locked doors map, list of all locked rooms and a list of all lockedDoor objects.
+     * This method assigns the key, locks the exit of the room, and registers the door with the world,
+     * which marks the room behind it as locked.
      *
+     * @param world The world the door belongs to.
      * @param room The room where the door is located.
-     * @param direction The direction in which the door is situated from the room, e.g., "east".
+     * @param direction The direction in which the door is situated from the room, e.g., Direction.EAST.
      * @param key The item required to unlock the door.
      */
-    public lockedDoor(Room room, String direction, Item key) {
-        // Convert room and direction to a snake_case string for identifying the locked door
-        this.roomPlusDirection = Utils.roomDirToSnake(room, direction);
+    public lockedDoor(World world, Room room, Direction direction, Item key) {
         this.key = key;
 
-        Game.lockedDoorsMap.put(roomPlusDirection, this); // Add the locked door to the game's locked doors map
-
-        Game.lockedDoorObjects.add(this); // Add the locked door to the list of locked doors
-
-        Game.allUnlockedRooms.remove(room.getExit(direction));  // Remove the locked room from the allUnlockedRooms list
-        Game.allLockedRooms.add(room.getExit(direction));   // Add the locked room to the allLockedRooms list
-    }
-
-    /**
-     * Retrieves the room and direction of the door.
-     *
-     * @return The room and direction of the door as a string.
-     */
-    public String getRoomPlusDirection() {
-        return roomPlusDirection;
+        room.setLockedDoor(direction, this); // Lock the exit, so moving through it finds the door at once
+        world.addLockedDoor(this, room.getExit(direction)); // Register the door and mark the room behind it as locked
     }
 
     /**
@@ -1,6 +1,4 @@
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.io.PrintStream;
 import java.util.ArrayList;
 
 /**
@@ -9,28 +7,37 @@ import java.util.ArrayList;
  * It provides methods for adding, removing, displaying items, and checking the number of items.
  * The class is initialised with the name of the entity (room or character) and its associated room.
  * <p>
- * The inventory is stored as a HashMap with items as keys and their quantities as values.
+ * The inventory is stored as {@link ItemCounts}, an array of quantities indexed by item id, and items are listed in id order.
+ * Every change to the items increases the inventory's version, so anything which caches a listing
+ * of the items, such as a room's rendered details, can tell when it is out of date.
  *
  * @author Mahdi Razzaque
  * @version 28.11.2024
  */
 
 public class nonPlayerInventory {
-    private HashMap<Item, Integer> inventory = new HashMap<>();
+    private ItemCounts inventory; // The number of each item in the inventory
+    private World world; // The world the inventory belongs to, which its events are tagged with
     private Room room;
     private String name;
+    private PrintStream out; // The stream the inventory is displayed on
+    private int version; // Increases every time the items change
 
     /**
      * Constructor for objects of class nonPlayerInventory for rooms/characters.
      * <p>
      * Initialises the inventory with the specified name and room.
      *
+     * @param world The world the inventory belongs to.
      * @param name The name of the room or character associated with this inventory.
      * @param room The room where the inventory is located.
      */
-    public nonPlayerInventory(String name, Room room) {
+    public nonPlayerInventory(World world, String name, Room room) {
         this.room = room;
         this.name = name;
+        this.world = world;
+        inventory = new ItemCounts(world);
+        out = world.getOut();
     }
 
     /**
@@ -43,11 +50,9 @@ public class nonPlayerInventory {
      * @param number The quantity of the item to be added.
      */
     public void addItem(Item item, Integer number) {
-        if (!inventory.containsKey(item)) {
-            inventory.put(item, number); // Add the item with the specified quantity
-            return;
-        }
-        inventory.put(item, inventory.get(item) + number); // Update the quantity if the item already exists
+        version++;
+        inventory.add(item, number); // Add the quantity to any of the item already in the inventory
+        GameEvents.inventoryChange(world, name, item, number);
     }
 
     /**
@@ -61,17 +66,14 @@ public class nonPlayerInventory {
      * @param number The quantity of the item to be removed.
      */
     public void removeItem(Item item, Integer number) {
-        if (!inventory.containsKey(item)) {
+        if (inventory.get(item) == 0) {
             return; // Do nothing if the item does not exist in the inventory
         }
+        version++;
 
-        int numberInInventory = inventory.get(item);
-        if (numberInInventory > number) {
-            inventory.put(item, inventory.get(item) - number); // Update the quantity if the current amount is greater than the number to be removed
-        } else {
-            inventory.put(item, 0); // Set the quantity to zero if the number to be removed is greater
-        }
-        Utils.removeZeroQuantityItems(inventory); // Remove items with zero quantity from the inventory
+        int removed = Math.min(number, inventory.get(item));
+        inventory.remove(item, number); // Reduce the quantity, stopping at zero if the number to be removed is greater
+        GameEvents.inventoryChange(world, name, item, -removed);
     }
 
 
@@ -84,36 +86,72 @@ public class nonPlayerInventory {
      * @param type Indicates whether to display the inventory for a room or a character.
      */
     public void displayInventory(String type) {
-        String inventoryList;
         switch (type) {
             case "character":
-                System.out.println("\n**Inventory of " + name + " **");
+                out.println("\n**Inventory of " + name + " **");
 
                 if (inventory.isEmpty()) {
-                    System.out.println("Inventory of " + name + " is empty.");
+                    out.println("Inventory of " + name + " is empty.");
                     return;
                 }
 
-                inventoryList = inventory.keySet().stream()
-                        .map(item -> Utils.toTitleCase(item.getName()) + ": " + inventory.get(item))
-                        .collect(Collectors.joining(", "));
-
-                System.out.println(inventoryList);
+                out.println(listItems(new StringBuilder()));
                 break;
 
             case "room":
-                if (inventory.isEmpty()) {
-                    System.out.println("Items: None");
-                    return;
-                }
+                out.println(getRoomListing());
+                break;
+        }
+    }
 
-                inventoryList = "Items: " + inventory.keySet().stream()
-                        .map(item -> Utils.toTitleCase(item.getName()) + ": " + inventory.get(item))
-                        .collect(Collectors.joining(", "));
+    /**
+     * Returns the listing of the items shown in a room's details, for example "Items: Coin: 1, Key: 1".
+     *
+     * @return The listing of the items, or "Items: None" if the inventory is empty.
+     */
+    public String getRoomListing() {
+        if (inventory.isEmpty()) {
+            return "Items: None";
+        }
 
-                System.out.println(inventoryList);
-                break;
+        return listItems(new StringBuilder("Items: ")).toString();
+    }
+
+    /**
+     * Appends each item and its quantity to a listing, for example "Coin: 5, Key: 1".
+     *
+     * @param listing The listing to append to.
+     * @return The listing.
+     */
+    private StringBuilder listItems(StringBuilder listing) {
+        int start = listing.length();
+        for (int id = inventory.next(0); id >= 0; id = inventory.next(id + 1)) {
+            if (listing.length() > start) listing.append(", ");
+            listing.append(Utils.toTitleCase(inventory.getItem(id).getName())).append(": ").append(inventory.getById(id));
+        }
+        return listing;
+    }
+
+    /**
+     * Appends the name of each item formatted for selection to a listing, for example "coin, key".
+     *
+     * @param listing The listing to append to.
+     * @return The listing.
+     */
+    private StringBuilder listItemSelection(StringBuilder listing) {
+        int start = listing.length();
+        for (int id = inventory.next(0); id >= 0; id = inventory.next(id + 1)) {
+            if (listing.length() > start) listing.append(", ");
+            listing.append(inventory.getItem(id).getName().toLowerCase().replaceAll(" ", "_"));
         }
+        return listing;
+    }
+
+    /**
+     * @return The version of the inventory, which increases every time the items change.
+     */
+    public int getVersion() {
+        return version;
     }
 
     /**
@@ -125,32 +163,23 @@ public class nonPlayerInventory {
      * @param type Indicates whether to display the inventory for a room or a character.
      */
     public void displayInventorySelection(String type) {
-        String inventoryList;
         switch (type) {
             case "character":
                 if (inventory.isEmpty()) {
-                    System.out.printf("Inventory of %s: None\n", name);
+                    out.printf("Inventory of %s: None\n", name);
                     return;
                 }
 
-                inventoryList = inventory.keySet().stream()
-                        .map(item -> item.getName().toLowerCase().replaceAll(" ", "_"))
-                        .collect(Collectors.joining(", "));
-
-                System.out.printf("Items of %s: %s\n", name, inventoryList);
+                out.printf("Items of %s: %s\n", name, listItemSelection(new StringBuilder()));
                 break;
 
             case "room":
                 if (inventory.isEmpty()) {
-                    System.out.println("Items: None");
+                    out.println("Items: None");
                     return;
                 }
 
-                inventoryList = inventory.keySet().stream()
-                        .map(item -> item.getName().toLowerCase().replaceAll(" ", "_"))
-                        .collect(Collectors.joining(", "));
-
-                System.out.println("Items: " + inventoryList);
+                out.println(listItemSelection(new StringBuilder("Items: ")));
                 break;
         }
     }
@@ -163,7 +192,7 @@ public class nonPlayerInventory {
      * @return The quantity of the specified item in the inventory.
      */
     public Integer numberOfItem(Item item) {
-        return inventory.getOrDefault(item, 0);
+        return inventory.get(item);
     }
 
     /**
@@ -172,39 +201,45 @@ public class nonPlayerInventory {
      * @return An ArrayList containing all the items in the inventory.
      */
     public ArrayList<Item> getItems() {
-        return new ArrayList<>(inventory.keySet());
+        ArrayList<Item> items = new ArrayList<>(inventory.size());
+        for (int id = inventory.next(0); id >= 0; id = inventory.next(id + 1)) {
+            items.add(inventory.getItem(id));
+        }
+        return items;
     }
 
     /**
      * This method retrieves the inventory of items and their quantities.
      * <p>
-     * @return A HashMap containing all the items and their quantities in the inventory.
+     * @return The quantities of all the items in the inventory.
      */
-    public HashMap<Item, Integer> getInventory() {
+    public ItemCounts getInventory() {
         return inventory;
     }
 
     /**
      * Adds all items from the provided map to the inventory.
      * <p>
-     * This method iterates through the provided map of items and their quantities,
+     * This method goes through the provided items and their quantities,
      * adding each item to the inventory.
      * <p>
      * This is used to move all the items from a character inventory
      * into the room inventory upon the character's death
      *
-     * @param itemsToAdd A HashMap containing items and their quantities to be added to the inventory.
+     * @param itemsToAdd The items and their quantities to be added to the inventory.
      */
-    public void addAll(HashMap<Item, Integer> itemsToAdd) {
-        for (Map.Entry<Item, Integer> entry : itemsToAdd.entrySet()) {
-            addItem(entry.getKey(), entry.getValue());
-        }
+    public void addAll(ItemCounts itemsToAdd) {
+        version++;
+        inventory.addAll(itemsToAdd);
+        GameEvents.inventoryChange(world, name, null, 0);
     }
 
     /**
      * This method removes all items from the inventory.
      */
     public void clear() {
+        version++;
         inventory.clear();
+        GameEvents.inventoryChange(world, name, null, 0);
     }
 }